@@ -25,6 +25,8 @@ public final class ANSIColors {
 
     private ANSIColors(){}
     
+    private static final char ESCAPE = '\u001B';
+
     private static final String ANSI_ESCAPE = "\u001B[";
 
     /**
@@ -154,15 +156,78 @@ public final class ANSIColors {
     }
 
     /**
-     * Removes the color codes from strings - useful for incompatible consoles or files
+     * Removes the color codes (and any other ANSI escape sequences) from strings - useful for incompatible consoles or files
      * @param in the string
-     * @return the string with stripped out color codes
+     * @return the string with stripped out color codes (the same instance if there were none)
      */
     public static String replaceANSI(String in) {
-        return in.replace(getBlack(), "").replace(getBlue(), "").replace(getRed(), "")
-                .replace(getReset(), "").replace(getCyan(), "").replace(getGreen(), "")
-                .replace(getPurple(), "").replace(getWhite(), "").replace(getYellow(), "");
+        int escape = in.indexOf(ESCAPE);
+        if (escape < 0) {
+            return in;
+        }
+        StringBuilder out = new StringBuilder(in.length());
+        out.append(in, 0, escape);
+        strip(in, escape, out);
+        return out.toString();
+    }
+
+    /**
+     * Checks if a text contains ANSI escape sequences
+     * @param in the text
+     * @return if there is at least one escape character
+     */
+    public static boolean containsANSI(CharSequence in) {
+        return indexOfEscape(in, 0) >= 0;
+    }
+
+    /**
+     * Appends a text without its ANSI escape sequences to a buffer
+     * @param in the text
+     * @param out the buffer the stripped text is appended to
+     */
+    public static void stripANSI(CharSequence in, StringBuilder out) {
+        strip(in, 0, out);
+    }
+
+    /**
+     * Removes all escape sequences in a single pass. Control sequences ("ESC [" followed by parameter and intermediate bytes
+     * up to a final byte) are removed completely, for every other escape the escape character and the one after it are removed.
+     */
+    private static void strip(CharSequence in, int start, StringBuilder out) {
+        int length = in.length();
+        int copyFrom = start;
+        int i;
+        while ((i = indexOfEscape(in, copyFrom)) >= 0) {
+            out.append(in, copyFrom, i);
+            i++;
+            if (i < length && in.charAt(i) == '[') {
+                i++;
+                // parameter (0x30-0x3F) and intermediate (0x20-0x2F) bytes
+                while (i < length && in.charAt(i) >= 0x20 && in.charAt(i) <= 0x3F) {
+                    i++;
+                }
+                // final byte (0x40-0x7E)
+                if (i < length && in.charAt(i) >= 0x40 && in.charAt(i) <= 0x7E) {
+                    i++;
+                }
+            } else if (i < length) {
+                i++;
+            }
+            copyFrom = i;
+        }
+        out.append(in, copyFrom, length);
+    }
 
+    private static int indexOfEscape(CharSequence in, int from) {
+        if (in instanceof String string) {
+            return string.indexOf(ESCAPE, from);
+        }
+        for (int i = from; i < in.length(); i++) {
+            if (in.charAt(i) == ESCAPE) {
+                return i;
+            }
+        }
+        return -1;
     }
 
 }
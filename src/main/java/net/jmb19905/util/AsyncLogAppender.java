@@ -0,0 +1,273 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands log records to a bounded, preallocated ring buffer which is drained in batches by one background thread.
+ * The logging threads only copy the record into a free slot and never touch the console or the log file.
+ */
+final class AsyncLogAppender extends Thread {
+
+    private final LogRecord[] ring;
+    private final ArrayDeque<LogRecord> spill = new ArrayDeque<>();
+    private final Logger.OverflowPolicy policy;
+    private final Logger.Level dropBelow;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+
+    private int head = 0;
+    private int count = 0;
+    private long publishedCount = 0;
+    private long writtenCount = 0;
+    private long droppedCount = 0;
+    private boolean closing = false;
+    private boolean finished = false;
+
+    /**
+     * Creates the appender - it has to be started before records are written
+     * @param capacity the amount of slots in the ring buffer
+     * @param policy what happens to records when the ring buffer is full
+     * @param dropBelow records below this level are dropped with {@link Logger.OverflowPolicy#DROP}
+     */
+    AsyncLogAppender(int capacity, Logger.OverflowPolicy policy, Logger.Level dropBelow) {
+        super("Logger-Writer");
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity has to be at least 1");
+        }
+        this.ring = new LogRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new LogRecord();
+        }
+        this.policy = policy;
+        this.dropBelow = dropBelow;
+        setDaemon(true);
+    }
+
+    /**
+     * Queues a record for the writer thread
+     * @return false if the appender is closed and the caller has to write the record itself
+     */
+    boolean append(Logger.Level level, long timestamp, String thread, String category, String message, Throwable cause, Map<String, String> context) {
+        if (Thread.currentThread() == this) {
+            // errors of the writer itself must not wait for a slot it would have to free
+            return false;
+        }
+        lock.lock();
+        try {
+            if (closing) {
+                return false;
+            }
+            if (count == ring.length || !spill.isEmpty()) {
+                if (policy == Logger.OverflowPolicy.SPILL) {
+                    // once spilling every record has to go to the overflow until it is drained to keep the order
+                    spill.addLast(new LogRecord(level, timestamp, thread, category, message, cause, context));
+                    publishedCount++;
+                    notEmpty.signal();
+                    return true;
+                }
+                if (policy == Logger.OverflowPolicy.DROP && level.getTier() < dropBelow.getTier()) {
+                    droppedCount++;
+                    return true;
+                }
+                while (count == ring.length && !closing) {
+                    notFull.awaitUninterruptibly();
+                }
+                if (closing) {
+                    return false;
+                }
+            }
+            ring[(head + count) % ring.length].set(level, timestamp, thread, category, message, cause, context);
+            count++;
+            publishedCount++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every record that was queued before this call is written
+     */
+    void flush() {
+        if (Thread.currentThread() == this) {
+            return;
+        }
+        lock.lock();
+        try {
+            long target = publishedCount;
+            while (writtenCount < target && !finished) {
+                written.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting records, writes the remaining ones and waits for the writer thread to finish
+     */
+    void close() {
+        lock.lock();
+        try {
+            closing = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.currentThread() != this) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Provides the amount of records that were dropped because the ring buffer was full
+     * @return the dropped record count
+     */
+    long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            drain();
+        } finally {
+            // after a normal close this changes nothing, but if the thread dies nobody may keep waiting for it
+            lock.lock();
+            try {
+                closing = true;
+                finished = true;
+                notFull.signalAll();
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            Logger.asyncStopped(this);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            int start;
+            int batch;
+            lock.lock();
+            try {
+                while (count == 0 && spill.isEmpty() && !closing) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (count == 0 && spill.isEmpty()) {
+                    finished = true;
+                    written.signalAll();
+                    return;
+                }
+                start = head;
+                batch = count;
+            } finally {
+                lock.unlock();
+            }
+
+            int spilledCount = 0;
+            LogWriter output = Logger.getOutput();
+            output.beginBatch();
+            try {
+                // the slots of the batch are not handed out again until head is moved, so they can be read without the lock
+                for (int i = 0; i < batch; i++) {
+                    write(output, ring[(start + i) % ring.length]);
+                }
+                LogRecord[] spilled = release(start, batch);
+                if (spilled != null) {
+                    spilledCount = spilled.length;
+                    for (LogRecord record : spilled) {
+                        write(output, record);
+                    }
+                }
+            } finally {
+                output.endBatch();
+            }
+
+            lock.lock();
+            try {
+                writtenCount += batch + spilledCount;
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a record - a record that cannot be written is reported on the console and skipped, so it doesn't stop the thread
+     */
+    private static void write(LogWriter output, LogRecord record) {
+        try {
+            output.write(record);
+        } catch (RuntimeException e) {
+            PrintStream console = Logger.getConsole();
+            console.println(ANSIColors.getRed() + "Logger Error: could not write a record");
+            e.printStackTrace(console);
+            console.print(ANSIColors.getReset());
+        }
+    }
+
+    /**
+     * Hands the written slots back to the logging threads
+     * @return the spilled records that can be written now or null
+     */
+    private LogRecord[] release(int start, int batch) {
+        lock.lock();
+        try {
+            for (int i = 0; i < batch; i++) {
+                ring[(start + i) % ring.length].clear();
+            }
+            head = (head + batch) % ring.length;
+            count -= batch;
+            notFull.signalAll();
+            // spilled records are newer than everything in the ring, so they may only be taken once the ring is empty
+            if (count == 0 && !spill.isEmpty()) {
+                LogRecord[] spilled = spill.toArray(new LogRecord[0]);
+                spill.clear();
+                return spilled;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
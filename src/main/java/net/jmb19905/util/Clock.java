@@ -18,8 +18,11 @@
 
 package net.jmb19905.util;
 
+import java.nio.CharBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Clock used to track time
@@ -28,6 +31,8 @@ public class Clock {
 
     private static long start;
 
+    private static final Map<String, CachedFormat> formats = new ConcurrentHashMap<>();
+
     /**
      * Creates an object of type Clock
      */
@@ -62,8 +67,131 @@ public class Clock {
      * @return the formatted date
      */
     public static String getCompactDate(String pattern) {
-        SimpleDateFormat format = new SimpleDateFormat(pattern);
-        Date now = new Date();
-        return format.format(now);
+        return getCompactDate(pattern, System.currentTimeMillis());
+    }
+
+    /**
+     * Formats a date
+     * @param pattern the pattern for formatting
+     * @param timestamp the date as milliseconds since the epoch
+     * @return the formatted date
+     */
+    public static String getCompactDate(String pattern, long timestamp) {
+        return getFormat(pattern).format(timestamp);
+    }
+
+    /**
+     * Appends a formatted date to a StringBuilder without creating any objects (unless the cached text is outdated)
+     * @param pattern the pattern for formatting
+     * @param timestamp the date as milliseconds since the epoch
+     * @param out the StringBuilder the date is appended to
+     */
+    public static void formatDate(String pattern, long timestamp, StringBuilder out) {
+        getFormat(pattern).format(timestamp, out);
+    }
+
+    /**
+     * Writes a formatted date into a CharBuffer without creating any objects (unless the cached text is outdated)
+     * @param pattern the pattern for formatting
+     * @param timestamp the date as milliseconds since the epoch
+     * @param out the CharBuffer the date is written to
+     */
+    public static void formatDate(String pattern, long timestamp, CharBuffer out) {
+        getFormat(pattern).format(timestamp, out);
+    }
+
+    /**
+     * Provides the shared cached format of a pattern
+     * @param pattern the pattern for formatting
+     * @return the cached format
+     */
+    public static CachedFormat getFormat(String pattern) {
+        CachedFormat format = formats.get(pattern);
+        if (format == null) {
+            format = formats.computeIfAbsent(pattern, CachedFormat::new);
+        }
+        return format;
+    }
+
+    /**
+     * A date format which only formats again when the formatted text would change:
+     * once per second or, if the pattern contains milliseconds, once per millisecond.
+     * In between the previously formatted text is reused. Instances are thread-safe.
+     */
+    public static final class CachedFormat {
+
+        private final SimpleDateFormat format;
+        private final long resolution;
+        private volatile Entry cached = new Entry(Long.MIN_VALUE, "");
+
+        /**
+         * Creates a cached format
+         * @param pattern the pattern for formatting (as in {@link SimpleDateFormat})
+         */
+        public CachedFormat(String pattern) {
+            this.format = new SimpleDateFormat(pattern);
+            this.resolution = containsMilliseconds(pattern) ? 1 : 1000;
+        }
+
+        /**
+         * Formats a date
+         * @param timestamp the date as milliseconds since the epoch
+         * @return the formatted date
+         */
+        public String format(long timestamp) {
+            long key = Math.floorDiv(timestamp, resolution);
+            Entry entry = cached;
+            if (entry.key != key) {
+                String text;
+                // SimpleDateFormat is not thread-safe, but this only happens once per second (or millisecond)
+                synchronized (format) {
+                    text = format.format(new Date(timestamp));
+                }
+                entry = new Entry(key, text);
+                cached = entry;
+            }
+            return entry.text;
+        }
+
+        /**
+         * Appends a formatted date to a StringBuilder
+         * @param timestamp the date as milliseconds since the epoch
+         * @param out the StringBuilder the date is appended to
+         */
+        public void format(long timestamp, StringBuilder out) {
+            out.append(format(timestamp));
+        }
+
+        /**
+         * Writes a formatted date into a CharBuffer
+         * @param timestamp the date as milliseconds since the epoch
+         * @param out the CharBuffer the date is written to
+         */
+        public void format(long timestamp, CharBuffer out) {
+            out.put(format(timestamp));
+        }
+
+        private static boolean containsMilliseconds(String pattern) {
+            boolean quoted = false;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '\'') {
+                    quoted = !quoted;
+                } else if (c == 'S' && !quoted) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static final class Entry {
+            private final long key;
+            private final String text;
+
+            private Entry(long key, String text) {
+                this.key = key;
+                this.text = text;
+            }
+        }
     }
 }
@@ -0,0 +1,115 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes every record as one JSON object per line, so log shippers do not have to parse the text log.
+ * The objects are streamed by a single {@link JsonGenerator} into a reused byte buffer which is handed to the
+ * {@link LogFile} as it is. Only used by the thread holding the write lock of the {@link LogWriter}.
+ */
+final class JsonLogFile {
+
+    private final LogFile file;
+    private final Buffer buffer = new Buffer();
+    private final JsonGenerator generator;
+
+    /**
+     * Creates the JSON log
+     * @param file the file the JSON lines are written to
+     * @throws IOException if the generator cannot be created
+     */
+    JsonLogFile(LogFile file) throws IOException {
+        this.file = file;
+        JsonFactory factory = new JsonFactory();
+        // the objects are separated by line separators instead
+        factory.setRootValueSeparator(null);
+        this.generator = factory.createGenerator(buffer);
+    }
+
+    /**
+     * Writes a record
+     * @param record the record
+     * @throws IOException if writing fails
+     */
+    void write(LogRecord record) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("timestamp", record.getTimestamp());
+        generator.writeStringField("level", record.getLevel().name());
+        generator.writeStringField("thread", record.getThread());
+        if (record.getCategory() != null) {
+            generator.writeStringField("logger", record.getCategory());
+        }
+        String message = record.getMessage();
+        generator.writeStringField("message", message == null ? null : ANSIColors.replaceANSI(message));
+        Throwable cause = record.getCause();
+        if (cause != null) {
+            generator.writeObjectFieldStart("exception");
+            generator.writeStringField("class", cause.getClass().getName());
+            generator.writeStringField("message", cause.getMessage());
+            generator.writeStringField("stacktrace", LogWriter.stacktraceAsString(cause));
+            generator.writeEndObject();
+        }
+        Map<String, String> context = record.getContext();
+        if (context != null && !context.isEmpty()) {
+            generator.writeObjectFieldStart("context");
+            for (Map.Entry<String, String> entry : context.entrySet()) {
+                generator.writeStringField(entry.getKey(), entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+        generator.flush();
+        buffer.write('\n');
+        file.write(buffer.array(), 0, buffer.size());
+        buffer.reset();
+    }
+
+    void flush() throws IOException {
+        file.flush();
+    }
+
+    void close() throws IOException {
+        try {
+            generator.close();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Gives access to the internal array, so the bytes do not have to be copied
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        private Buffer() {
+            super(1024);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The log file of the {@link Logger}. Lines are encoded to UTF-8 straight into a reused buffer and written through a
+ * {@link FileChannel} without any Writer. If enabled, full buffers are instead copied into a {@link MappedByteBuffer} window
+ * of exactly their size, so the file never grows past the written bytes.
+ * The file is rolled over once it reaches a size or age limit and rotated files can be compressed in the background.
+ * Only used by the thread holding the write lock of the {@link LogWriter}.
+ */
+final class LogFile {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAPPED_REGION_SIZE = 1024 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Path directory;
+    private final String name;
+    private final String extension;
+    private final Logger.FileSettings settings;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private CharBuffer chars = CharBuffer.allocate(1024);
+
+    private FileChannel channel;
+    /**
+     * The staging buffer of the lines that are not in the file yet
+     */
+    private ByteBuffer out;
+    /**
+     * The position of the file where the current buffer starts
+     */
+    private long bufferStart;
+    private long openedAt;
+    private int segment = 0;
+    private ExecutorService compressor;
+
+    /**
+     * Creates and opens the log file "latest_[name][extension]" (an old one is replaced)
+     * @param directory the directory of the log files
+     * @param name the name of the log
+     * @param extension the file extension (e.g. ".log")
+     * @param settings the rollover settings
+     * @throws IOException if the file cannot be created
+     */
+    LogFile(Path directory, String name, String extension, Logger.FileSettings settings) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.extension = extension;
+        this.settings = settings;
+        Files.createDirectories(directory);
+        open();
+    }
+
+    /**
+     * Provides the path of the file that is currently written to
+     * @return the path of the latest log file
+     */
+    Path getPath() {
+        return directory.resolve("latest_" + name + extension);
+    }
+
+    /**
+     * Writes a line and rolls the file over if it reached the size or age limit
+     * @param line the line without line separator
+     * @throws IOException if writing fails
+     */
+    void write(CharSequence line) throws IOException {
+        checkAge();
+        int length = line.length() + LINE_SEPARATOR.length();
+        if (chars.capacity() < length) {
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        }
+        chars.clear();
+        if (line instanceof StringBuilder builder) {
+            builder.getChars(0, builder.length(), chars.array(), 0);
+            chars.position(builder.length());
+        } else {
+            chars.append(line);
+        }
+        chars.append(LINE_SEPARATOR).flip();
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, out, true);
+            if (result.isOverflow()) {
+                nextBuffer();
+            } else {
+                break;
+            }
+        }
+        checkSize();
+    }
+
+    /**
+     * Writes already encoded bytes (which have to end with a line separator) and rolls the file over if it reached the size or age limit
+     * @param bytes the bytes
+     * @param off the start of the bytes in the array
+     * @param len the amount of bytes
+     * @throws IOException if writing fails
+     */
+    void write(byte[] bytes, int off, int len) throws IOException {
+        checkAge();
+        while (len > 0) {
+            if (!out.hasRemaining()) {
+                nextBuffer();
+            }
+            int chunk = Math.min(len, out.remaining());
+            out.put(bytes, off, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+        checkSize();
+    }
+
+    private void checkAge() throws IOException {
+        if (settings.getMaxAge() > 0 && System.currentTimeMillis() - openedAt >= settings.getMaxAge()) {
+            rollOver();
+        }
+    }
+
+    private void checkSize() throws IOException {
+        if (settings.getMaxSize() > 0 && size() >= settings.getMaxSize()) {
+            rollOver();
+        }
+    }
+
+    /**
+     * Hands the written lines to the operating system
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException {
+        writeBuffer();
+    }
+
+    /**
+     * Flushes and closes the file and waits for rotated files that are still being compressed
+     * @throws IOException if closing fails
+     */
+    void close() throws IOException {
+        try {
+            closeChannel();
+        } finally {
+            if (compressor != null) {
+                compressor.shutdown();
+                try {
+                    compressor.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private long size() {
+        return bufferStart + out.position();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(getPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        bufferStart = 0;
+        openedAt = System.currentTimeMillis();
+        if (out == null) {
+            out = ByteBuffer.allocateDirect(settings.isMemoryMapped() ? MAPPED_REGION_SIZE : BUFFER_SIZE);
+        }
+        out.clear();
+    }
+
+    private void nextBuffer() throws IOException {
+        if (settings.isMemoryMapped()) {
+            // the window is exactly as large as the data, so the file never grows past what was written and is never truncated
+            out.flip();
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, bufferStart, out.remaining());
+            window.put(out);
+            bufferStart += window.position();
+            out.clear();
+        } else {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        out.flip();
+        // positional writes, mapping a window doesn't move the position of the channel
+        while (out.hasRemaining()) {
+            bufferStart += channel.write(out, bufferStart);
+        }
+        out.clear();
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            writeBuffer();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Renames the current file to "[date]_[name]-[segment][extension]" and starts a new latest file.
+     * The rename and reopen are quick, the slow compression of the old file happens on a background thread.
+     */
+    private void rollOver() throws IOException {
+        closeChannel();
+        segment++;
+        Path rotated = directory.resolve(Clock.getCompactDate("dd.MM.yyyy_HH.mm.ss") + "_" + name + "-" + segment + extension);
+        Files.move(getPath(), rotated);
+        open();
+        if (settings.isCompressed()) {
+            if (compressor == null) {
+                compressor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Logger-Compressor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            compressor.execute(() -> compress(rotated));
+        }
+    }
+
+    private static void compress(Path file) {
+        Path compressed = file.resolveSibling(file.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(file); OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(compressed), BUFFER_SIZE)) {
+            in.transferTo(gzip);
+        } catch (IOException e) {
+            report("Could not compress log file " + file, e);
+            return;
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            report("Could not delete compressed log file " + file, e);
+        }
+    }
+
+    /**
+     * Prints an error of the compressor on the console - through the Logger it would wait behind close(), which holds the write lock
+     */
+    private static void report(String message, IOException e) {
+        PrintStream console = Logger.getConsole();
+        console.println(ANSIColors.getYellow() + message);
+        e.printStackTrace(console);
+        console.print(ANSIColors.getReset());
+    }
+}
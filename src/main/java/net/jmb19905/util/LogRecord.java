@@ -0,0 +1,105 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import java.util.Map;
+
+/**
+ * A single message handed from the logging methods to the output of the {@link Logger}.
+ * Instances are reused by the {@link AsyncLogAppender}, so they must not be kept after being written.
+ */
+final class LogRecord {
+
+    private Logger.Level level;
+    private long timestamp;
+    private String thread;
+    private String category;
+    private String message;
+    private Throwable cause;
+    private Map<String, String> context;
+
+    /**
+     * Creates an empty record (used to preallocate the slots of the ring buffer)
+     */
+    LogRecord() {}
+
+    /**
+     * Creates a record
+     * @param level the level of the message
+     * @param timestamp the time the message was logged at
+     * @param thread the name of the thread that logged the message
+     * @param category the name of the {@link NamedLogger} or null for the root logger
+     * @param message the message
+     * @param cause the exception or null
+     * @param context the (immutable) context of the logging thread
+     */
+    LogRecord(Logger.Level level, long timestamp, String thread, String category, String message, Throwable cause, Map<String, String> context) {
+        set(level, timestamp, thread, category, message, cause, context);
+    }
+
+    void set(Logger.Level level, long timestamp, String thread, String category, String message, Throwable cause, Map<String, String> context) {
+        this.level = level;
+        this.timestamp = timestamp;
+        this.thread = thread;
+        this.category = category;
+        this.message = message;
+        this.cause = cause;
+        this.context = context;
+    }
+
+    /**
+     * Drops the references to the message and exception so a reused slot does not keep them alive
+     */
+    void clear() {
+        thread = null;
+        category = null;
+        message = null;
+        cause = null;
+        context = null;
+    }
+
+    Logger.Level getLevel() {
+        return level;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    String getThread() {
+        return thread;
+    }
+
+    String getCategory() {
+        return category;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    Throwable getCause() {
+        return cause;
+    }
+
+    Map<String, String> getContext() {
+        return context;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes log records to the console and the log file.
+ * Logging threads only put their record into a lock-free queue. Whichever thread manages to take the write lock
+ * afterwards writes everything that is queued (including the records of other threads), all others return immediately.
+ * This keeps every line whole and in order without making the logging threads wait on a shared monitor.
+ */
+final class LogWriter {
+
+    private final ConcurrentLinkedQueue<LogRecord> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile Clock.CachedFormat timestampFormat = Clock.getFormat(Logger.DEFAULT_TIMESTAMP_PATTERN);
+
+    /**
+     * Only accessed while holding the write lock
+     */
+    private LogFile file;
+    /**
+     * Only accessed while holding the write lock
+     */
+    private JsonLogFile jsonFile;
+    /**
+     * Reused for every line - only accessed while holding the write lock
+     */
+    private final StringBuilder line = new StringBuilder(256);
+    /**
+     * The line without escape sequences - only accessed while holding the write lock
+     */
+    private final StringBuilder plainLine = new StringBuilder(256);
+
+    /**
+     * Queues a record and writes the queue if no other thread is currently doing so
+     * @param record the record
+     */
+    void submit(LogRecord record) {
+        pending.offer(record);
+        drain();
+    }
+
+    /**
+     * Writes all queued records unless another thread is already writing them
+     */
+    void drain() {
+        if (writeLock.isHeldByCurrentThread()) {
+            // called while writing (e.g. an error of the writer) - the outer loop picks the record up
+            return;
+        }
+        // re-checking after unlocking closes the gap where a record is queued just after the writer's last poll
+        while (!pending.isEmpty() && writeLock.tryLock()) {
+            try {
+                LogRecord record;
+                while ((record = pending.poll()) != null) {
+                    write(record);
+                }
+                flush();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the write lock for writing several records with {@link #write(LogRecord)}
+     */
+    void beginBatch() {
+        writeLock.lock();
+    }
+
+    /**
+     * Flushes the batch, releases the write lock and writes records that were queued in the meantime
+     */
+    void endBatch() {
+        try {
+            flush();
+        } finally {
+            writeLock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Writes a record without flushing - the write lock has to be held
+     * @param record the record
+     */
+    void write(LogRecord record) {
+        plainLine.setLength(0);
+        String stacktrace = record.getCause() == null ? null : stacktraceAsString(record.getCause());
+        format(record, stacktrace, timestampFormat, plainLine, true);
+        if (Logger.isColored()) {
+            line.setLength(0);
+            colorize(record, stacktrace, timestampFormat, plainLine, line);
+            Logger.getConsole().println(line);
+        } else {
+            Logger.getConsole().println(plainLine);
+        }
+        if (file != null) {
+            try {
+                file.write(plainLine);
+            } catch (IOException e) {
+                fileError(e);
+            }
+        }
+        if (jsonFile != null) {
+            try {
+                jsonFile.write(record);
+            } catch (IOException e) {
+                fileError(e);
+            }
+        }
+    }
+
+    /**
+     * Changes the format of the timestamps at the start of each line
+     * @param timestampFormat the new format
+     */
+    void setTimestampFormat(Clock.CachedFormat timestampFormat) {
+        this.timestampFormat = timestampFormat;
+    }
+
+    /**
+     * Formats a record without the reused buffer (used when the logger is closed)
+     * @param record the record
+     * @return the formatted line
+     */
+    String format(LogRecord record) {
+        StringBuilder plain = new StringBuilder(128);
+        String stacktrace = record.getCause() == null ? null : stacktraceAsString(record.getCause());
+        format(record, stacktrace, timestampFormat, plain, true);
+        if (!Logger.isColored()) {
+            return plain.toString();
+        }
+        StringBuilder colored = new StringBuilder(plain.length() + 16);
+        colorize(record, stacktrace, timestampFormat, plain, colored);
+        return colored.toString();
+    }
+
+    /**
+     * Replaces the log files - the old ones are closed
+     * @param file the new text file or null
+     * @param jsonFile the new JSON file or null
+     */
+    void setFile(LogFile file, JsonLogFile jsonFile) {
+        writeLock.lock();
+        try {
+            try {
+                closeFiles();
+            } catch (IOException e) {
+                fileError(e);
+            }
+            this.file = file;
+            this.jsonFile = jsonFile;
+        } finally {
+            writeLock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Writes the queued records and closes the log file
+     * @throws IOException if closing the file fails
+     */
+    void closeFile() throws IOException {
+        writeLock.lock();
+        try {
+            LogRecord record;
+            while ((record = pending.poll()) != null) {
+                write(record);
+            }
+            closeFiles();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        LogFile closing = file;
+        JsonLogFile closingJson = jsonFile;
+        file = null;
+        jsonFile = null;
+        try {
+            if (closing != null) {
+                closing.close();
+            }
+        } finally {
+            if (closingJson != null) {
+                closingJson.close();
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            if (file != null) {
+                file.flush();
+            }
+            if (jsonFile != null) {
+                jsonFile.flush();
+            }
+        } catch (IOException e) {
+            fileError(e);
+        }
+    }
+
+    /**
+     * Reporting a broken log file through the logger would fail again, so the file is dropped and the error printed
+     */
+    private void fileError(IOException e) {
+        file = null;
+        jsonFile = null;
+        PrintStream console = Logger.getConsole();
+        console.println(ANSIColors.getRed() + "Logger Error:");
+        e.printStackTrace(console);
+        console.print(ANSIColors.getReset());
+    }
+
+    /**
+     * Appends the line without color codes: "[timestamp] [LEVEL] message" or the message followed by the stacktrace
+     * @param strip if escape sequences in the message should be removed
+     */
+    private static void format(LogRecord record, String stacktrace, Clock.CachedFormat timestampFormat, StringBuilder out, boolean strip) {
+        // a null message is printed as "null", like the string concatenation this replaced did
+        String message = String.valueOf(record.getMessage());
+        if (stacktrace == null) {
+            out.append('[');
+            timestampFormat.format(record.getTimestamp(), out);
+            out.append(record.getLevel().getLabel());
+            if (record.getCategory() != null) {
+                out.append('[').append(record.getCategory()).append("] ");
+            }
+        }
+        if (strip) {
+            ANSIColors.stripANSI(message, out);
+        } else {
+            out.append(message);
+        }
+        if (stacktrace != null) {
+            if (!message.isBlank()) {
+                out.append('\n');
+            }
+            out.append(stacktrace);
+        }
+    }
+
+    /**
+     * Appends the line in the color of its level. The plain line is reused unless the message has its own escape sequences.
+     */
+    private static void colorize(LogRecord record, String stacktrace, Clock.CachedFormat timestampFormat, StringBuilder plain, StringBuilder out) {
+        out.append(record.getLevel().getColor());
+        if (record.getMessage() != null && ANSIColors.containsANSI(record.getMessage())) {
+            format(record, stacktrace, timestampFormat, out, false);
+        } else {
+            out.append(plain);
+        }
+        out.append(ANSIColors.getReset());
+    }
+
+    static String stacktraceAsString(Throwable cause) {
+        if (Logger.isClosed()) {
+            return "";
+        }
+        StringWriter stringWriter = new StringWriter();
+        PrintWriter printWriter = new PrintWriter(stringWriter);
+        cause.printStackTrace(printWriter);
+        return stringWriter.toString();
+    }
+}
@@ -19,49 +19,73 @@
 package net.jmb19905.util;
 
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @SuppressWarnings({"ResultOfMethodCallIgnored", "unused"})
 public class Logger {
 
-    private static Level level = Level.INFO;
+    /**
+     * The pattern of the timestamps at the start of each line if no other one is set
+     */
+    public static final String DEFAULT_TIMESTAMP_PATTERN = "dd.MM.yyyy HH:mm:ss";
+
+    private static volatile Level level = Level.INFO;
 
-    private static boolean isOnNewLine = true;
+    private static final LogWriter output = new LogWriter();
+    private static volatile String name;
 
-    private static BufferedWriter writer;
-    private static String name;
+    private static volatile boolean closed = false;
 
-    private static boolean closed = false;
+    private static final AtomicReference<AsyncLogAppender> asyncAppender = new AtomicReference<>();
+
+    private static volatile boolean colored = detectColors();
+
+    /**
+     * The stream the Logger prints to - null means {@link System#out}
+     */
+    private static volatile PrintStream console;
+    private static PrintStream originalErr;
+
+    private static final ThreadLocal<Map<String, String>> context = ThreadLocal.withInitial(Collections::emptyMap);
 
     public static PrintStream[] printStreams = new PrintStream[6];
 
-    private static PrintStream createPrintStream(Level level) {
-        return new PrintStream(new OutputStream() {
-            final StringBuilder builder = new StringBuilder();
-            @Override
-            public void write(int b) {
-                if(closed) return;
-                if(((byte) b) == '\n') Logger.log(builder.toString(), level);
-                else builder.append(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(new byte[]{(byte) b})).get());
-            }
-        }, true, StandardCharsets.UTF_8);
+    /**
+     * Provides the named logger of a category. Names are hierarchical: "events.async" inherits the level of "events",
+     * which inherits the level of the root logger ({@link #setLevel(Level)}) unless a level is set for it.
+     *
+     * @param name the dot separated name of the category
+     * @return the logger of the category
+     */
+    public static NamedLogger get(String name) {
+        return NamedLogger.get(name);
     }
 
     public static void initLogFile(String name) {
+        initLogFile(name, new FileSettings());
+    }
+
+    /**
+     * Starts writing to the log file "logs/latest_[name].log"
+     *
+     * @param name     the name of the log
+     * @param settings when the file is rolled over and how it is written
+     */
+    public static synchronized void initLogFile(String name, FileSettings settings) {
         if (closed) {
             return;
         }
         Logger.name = name;
-        File logFile = new File("logs/latest_" + name + ".log");
-        if (logFile.exists()) {
-            logFile.delete();
-        }
         try {
-            logFile.getParentFile().mkdirs();
-            logFile.createNewFile();
-            writer = new BufferedWriter(new FileWriter(logFile));
+            output.setFile(new LogFile(Paths.get("logs"), name, ".log", settings),
+                    settings.isJson() ? new JsonLogFile(new LogFile(Paths.get("logs"), name, ".json", settings)) : null);
         } catch (IOException e) {
             log(e, Level.ERROR);
         }
@@ -69,37 +93,185 @@ public class Logger {
 
     public static void setLevel(Level level) {
         Logger.level = level;
-        Logger.info("Set Logger Level to: " + level);
+        NamedLogger.rootLevelChanged(level);
+        Logger.info("Set Logger Level to: {}", level);
     }
 
     public static Level getLevel() {
         return level;
     }
 
-    private static void writeLine(String s) {
-        if (writer != null && !closed) {
-            try {
-                writer.write(ANSIColors.replaceANSI(s));
-                writer.newLine();
-                writer.flush();
-            } catch (IOException e) {
-                Logger.log(e, Level.ERROR);
-            }
+    /**
+     * Enables or disables the color codes in the console output. By default colors are used if the program runs in a terminal
+     * (or the system property "jmb.logger.colors" is true) and the environment variable NO_COLOR is not set.
+     * Consoles of IDEs are usually not detected as terminal.
+     *
+     * @param colored if the console output should be colored
+     */
+    public static void setColored(boolean colored) {
+        Logger.colored = colored;
+    }
+
+    public static boolean isColored() {
+        return colored;
+    }
+
+    private static boolean detectColors() {
+        String property = System.getProperty("jmb.logger.colors");
+        if (property != null) {
+            return Boolean.parseBoolean(property);
         }
+        return System.getenv("NO_COLOR") == null && System.console() != null;
+    }
+
+    /**
+     * Changes the format of the timestamps at the start of each line. The formatted text is cached and only
+     * rebuilt once per second, or once per millisecond if the pattern contains milliseconds ("SSS").
+     *
+     * @param pattern the pattern (as in {@link java.text.SimpleDateFormat})
+     */
+    public static void setTimestampPattern(String pattern) {
+        output.setTimestampFormat(Clock.getFormat(pattern));
     }
 
-    private static void logRaw(String message) {
+    /**
+     * Enables the asynchronous mode with a ring buffer of 8192 records that blocks the logging threads when it is full
+     */
+    public static void enableAsync() {
+        enableAsync(8192, OverflowPolicy.BLOCK, Level.TRACE);
+    }
+
+    /**
+     * Enables the asynchronous mode: records are handed to a bounded ring buffer and written to the console
+     * and the log file in batches by a background thread, so the logging threads never wait for I/O
+     *
+     * @param capacity  the amount of records the ring buffer can hold
+     * @param policy    what happens to new records while the ring buffer is full
+     * @param dropBelow records below this level are dropped while the ring buffer is full (only used by {@link OverflowPolicy#DROP})
+     */
+    public static synchronized void enableAsync(int capacity, OverflowPolicy policy, Level dropBelow) {
         if (closed) {
-            System.out.println(message);
             return;
         }
-        if (!isOnNewLine) {
-            System.out.println("\n");
-            writeLine("");
+        disableAsync();
+        AsyncLogAppender appender = new AsyncLogAppender(capacity, policy, dropBelow);
+        appender.start();
+        asyncAppender.set(appender);
+    }
+
+    /**
+     * Disables the asynchronous mode after writing all queued records
+     */
+    public static synchronized void disableAsync() {
+        AsyncLogAppender appender = asyncAppender.getAndSet(null);
+        if (appender != null) {
+            appender.close();
         }
-        System.out.println(message);
-        isOnNewLine = true;
-        writeLine(message);
+    }
+
+    /**
+     * Checks if the Logger writes asynchronously
+     * @return if the asynchronous mode is enabled
+     */
+    public static boolean isAsync() {
+        return asyncAppender.get() != null;
+    }
+
+    /**
+     * Provides the amount of records the asynchronous mode dropped because the ring buffer was full
+     * @return the dropped record count
+     */
+    public static long getDroppedCount() {
+        AsyncLogAppender appender = asyncAppender.get();
+        return appender == null ? 0 : appender.getDroppedCount();
+    }
+
+    /**
+     * Blocks until all records queued by the asynchronous mode are written
+     */
+    public static void flush() {
+        AsyncLogAppender appender = asyncAppender.get();
+        if (appender != null) {
+            appender.flush();
+        }
+    }
+
+    /**
+     * Falls back to writing synchronously after the writer thread of the asynchronous mode died
+     * @param appender the appender whose thread stopped
+     */
+    static void asyncStopped(AsyncLogAppender appender) {
+        // not synchronized: disableAsync() holds the monitor while it waits for the thread calling this
+        asyncAppender.compareAndSet(appender, null);
+    }
+
+    static LogWriter getOutput() {
+        return output;
+    }
+
+    static boolean isClosed() {
+        return closed;
+    }
+
+    private static void publish(Level level, String message, Throwable cause) {
+        publish(level, null, message, cause);
+    }
+
+    /**
+     * Hands a message to the output - the level has to be checked by the caller
+     *
+     * @param level    the level of the message
+     * @param category the name of the {@link NamedLogger} or null for the root logger
+     * @param message  the message
+     * @param cause    the exception or null
+     */
+    static void publish(Level level, String category, String message, Throwable cause) {
+        long timestamp = System.currentTimeMillis();
+        String thread = Thread.currentThread().getName();
+        Map<String, String> context = Logger.context.get();
+        if (closed) {
+            getConsole().println(output.format(new LogRecord(level, timestamp, thread, category, message, cause, context)));
+            return;
+        }
+        AsyncLogAppender appender = asyncAppender.get();
+        if (appender == null || !appender.append(level, timestamp, thread, category, message, cause, context)) {
+            output.submit(new LogRecord(level, timestamp, thread, category, message, cause, context));
+        }
+    }
+
+    /**
+     * Adds a key-value pair to the context of the current thread. The context is attached to every record
+     * the thread logs and written to the JSON log file.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public static void putContext(String key, Object value) {
+        // records keep a reference to the map, so it is replaced instead of modified
+        Map<String, String> copy = new LinkedHashMap<>(context.get());
+        copy.put(key, String.valueOf(value));
+        context.set(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Removes a key from the context of the current thread
+     *
+     * @param key the key
+     */
+    public static void removeContext(String key) {
+        Map<String, String> current = context.get();
+        if (current.containsKey(key)) {
+            Map<String, String> copy = new LinkedHashMap<>(current);
+            copy.remove(key);
+            context.set(copy.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(copy));
+        }
+    }
+
+    /**
+     * Removes all key-value pairs from the context of the current thread
+     */
+    public static void clearContext() {
+        context.remove();
     }
 
     /**
@@ -110,8 +282,91 @@ public class Logger {
      */
     public static void log(String message, Level currentLevel) {
         if (currentLevel.tier >= level.tier) {
-            String log = "[" + Clock.getCompactDate("dd.MM.yyyy HH:mm:ss") + "] [" + currentLevel + "] " + message;
-            logRaw(currentLevel.getColor() + log + ANSIColors.getReset());
+            publish(currentLevel, message, null);
+        }
+    }
+
+    /**
+     * Checks if messages of a level would be logged
+     *
+     * @param currentLevel the level
+     * @return if the level is enabled
+     */
+    public static boolean isEnabled(Level currentLevel) {
+        return currentLevel.tier >= level.tier;
+    }
+
+    public static boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public static boolean isInfoEnabled() {
+        return isEnabled(Level.INFO);
+    }
+
+    public static boolean isWarnEnabled() {
+        return isEnabled(Level.WARN);
+    }
+
+    public static boolean isErrorEnabled() {
+        return isEnabled(Level.ERROR);
+    }
+
+    public static boolean isFatalEnabled() {
+        return isEnabled(Level.FATAL);
+    }
+
+    /**
+     * Logs a message to the console - the message is only created if the level is enabled
+     *
+     * @param message      supplies the message
+     * @param currentLevel the Level of the message
+     */
+    public static void log(Supplier<String> message, Level currentLevel) {
+        if (currentLevel.tier >= level.tier) {
+            publish(currentLevel, message.get(), null);
+        }
+    }
+
+    /**
+     * Logs a message to the console - every "{}" in the pattern is replaced by the next argument,
+     * but only if the level is enabled. If there is an argument left over and it is an exception it is logged as well.
+     *
+     * @param currentLevel the Level of the message
+     * @param pattern      the message with "{}" placeholders
+     * @param args         the arguments for the placeholders
+     */
+    public static void log(Level currentLevel, String pattern, Object... args) {
+        if (currentLevel.tier >= level.tier) {
+            logFormatted(currentLevel, pattern, args);
+        }
+    }
+
+    private static void logFormatted(Level currentLevel, String pattern, Object... args) {
+        logFormatted(currentLevel, null, pattern, args);
+    }
+
+    /**
+     * Replaces the "{}" placeholders and logs the message - the level has to be checked by the caller
+     */
+    static void logFormatted(Level currentLevel, String category, String pattern, Object... args) {
+        StringBuilder builder = new StringBuilder(pattern.length() + 16 * args.length);
+        int used = 0;
+        int start = 0;
+        int index;
+        while (used < args.length && (index = pattern.indexOf("{}", start)) >= 0) {
+            builder.append(pattern, start, index).append(args[used++]);
+            start = index + 2;
+        }
+        builder.append(pattern, start, pattern.length());
+        if (used < args.length && args[args.length - 1] instanceof Throwable cause) {
+            publish(currentLevel, category, builder.toString(), cause);
+        } else {
+            publish(currentLevel, category, builder.toString(), null);
         }
     }
 
@@ -133,13 +388,33 @@ public class Logger {
      * @param level   the level of the exception and message
      */
     public static void log(Throwable cause, String message, Level level) {
-        logRaw(level.getColor() + message + (message.strip().equals("") ? "" : "\n") + stacktraceAsString(cause) + ANSIColors.getReset());
+        publish(level, message, cause);
     }
 
     public static void trace(String message) {
         log(message, Level.TRACE);
     }
 
+    public static void trace(Supplier<String> message) {
+        log(message, Level.TRACE);
+    }
+
+    public static void trace(String pattern, Object arg) {
+        if (isEnabled(Level.TRACE)) {
+            logFormatted(Level.TRACE, pattern, arg);
+        }
+    }
+
+    public static void trace(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.TRACE)) {
+            logFormatted(Level.TRACE, pattern, arg1, arg2);
+        }
+    }
+
+    public static void trace(String pattern, Object... args) {
+        log(Level.TRACE, pattern, args);
+    }
+
     public static void trace(Throwable cause) {
         log(cause, Level.TRACE);
     }
@@ -152,6 +427,26 @@ public class Logger {
         log(message, Level.DEBUG);
     }
 
+    public static void debug(Supplier<String> message) {
+        log(message, Level.DEBUG);
+    }
+
+    public static void debug(String pattern, Object arg) {
+        if (isEnabled(Level.DEBUG)) {
+            logFormatted(Level.DEBUG, pattern, arg);
+        }
+    }
+
+    public static void debug(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) {
+            logFormatted(Level.DEBUG, pattern, arg1, arg2);
+        }
+    }
+
+    public static void debug(String pattern, Object... args) {
+        log(Level.DEBUG, pattern, args);
+    }
+
     public static void debug(Throwable cause) {
         log(cause, Level.DEBUG);
     }
@@ -164,6 +459,26 @@ public class Logger {
         log(message, Level.INFO);
     }
 
+    public static void info(Supplier<String> message) {
+        log(message, Level.INFO);
+    }
+
+    public static void info(String pattern, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            logFormatted(Level.INFO, pattern, arg);
+        }
+    }
+
+    public static void info(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            logFormatted(Level.INFO, pattern, arg1, arg2);
+        }
+    }
+
+    public static void info(String pattern, Object... args) {
+        log(Level.INFO, pattern, args);
+    }
+
     public static void info(Throwable cause) {
         log(cause, Level.INFO);
     }
@@ -176,6 +491,26 @@ public class Logger {
         log(message, Level.WARN);
     }
 
+    public static void warn(Supplier<String> message) {
+        log(message, Level.WARN);
+    }
+
+    public static void warn(String pattern, Object arg) {
+        if (isEnabled(Level.WARN)) {
+            logFormatted(Level.WARN, pattern, arg);
+        }
+    }
+
+    public static void warn(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARN)) {
+            logFormatted(Level.WARN, pattern, arg1, arg2);
+        }
+    }
+
+    public static void warn(String pattern, Object... args) {
+        log(Level.WARN, pattern, args);
+    }
+
     public static void warn(Throwable cause) {
         log(cause, Level.WARN);
     }
@@ -188,6 +523,26 @@ public class Logger {
         log(message, Level.ERROR);
     }
 
+    public static void error(Supplier<String> message) {
+        log(message, Level.ERROR);
+    }
+
+    public static void error(String pattern, Object arg) {
+        if (isEnabled(Level.ERROR)) {
+            logFormatted(Level.ERROR, pattern, arg);
+        }
+    }
+
+    public static void error(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.ERROR)) {
+            logFormatted(Level.ERROR, pattern, arg1, arg2);
+        }
+    }
+
+    public static void error(String pattern, Object... args) {
+        log(Level.ERROR, pattern, args);
+    }
+
     public static void error(Throwable cause) {
         log(cause, Level.ERROR);
     }
@@ -200,6 +555,26 @@ public class Logger {
         log(message, Level.FATAL);
     }
 
+    public static void fatal(Supplier<String> message) {
+        log(message, Level.FATAL);
+    }
+
+    public static void fatal(String pattern, Object arg) {
+        if (isEnabled(Level.FATAL)) {
+            logFormatted(Level.FATAL, pattern, arg);
+        }
+    }
+
+    public static void fatal(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.FATAL)) {
+            logFormatted(Level.FATAL, pattern, arg1, arg2);
+        }
+    }
+
+    public static void fatal(String pattern, Object... args) {
+        log(Level.FATAL, pattern, args);
+    }
+
     public static void fatal(Throwable cause) {
         log(cause, Level.FATAL);
     }
@@ -208,55 +583,200 @@ public class Logger {
         log(cause, message, Level.FATAL);
     }
 
-    public static PrintStream getPrintStream(Level level) {
+    /**
+     * Provides a PrintStream which logs every line written to it
+     *
+     * @param level the level of the lines
+     * @return the PrintStream of the level
+     */
+    public static synchronized PrintStream getPrintStream(Level level) {
         PrintStream printStream = printStreams[level.getTier()];
         if (printStream == null) {
-            printStream = createPrintStream(level);
+            printStream = new PrintStream(new LoggerOutputStream(level), true, StandardCharsets.UTF_8);
+            printStreams[level.getTier()] = printStream;
         }
         return printStream;
     }
 
-    public static void close() {
+    /**
+     * Redirects {@link System#out} to the Logger with level INFO and {@link System#err} with level ERROR.
+     * The Logger itself keeps printing to the original console.
+     */
+    public static synchronized void installSystemStreams() {
+        if (console != null) {
+            return;
+        }
+        console = System.out;
+        originalErr = System.err;
+        System.setOut(getPrintStream(Level.INFO));
+        System.setErr(getPrintStream(Level.ERROR));
+    }
+
+    /**
+     * Restores the {@link System#out} and {@link System#err} streams replaced by {@link #installSystemStreams()}
+     */
+    public static synchronized void uninstallSystemStreams() {
+        if (console == null) {
+            return;
+        }
+        System.out.flush();
+        System.err.flush();
+        System.setOut(console);
+        System.setErr(originalErr);
+        console = null;
+        originalErr = null;
+    }
+
+    /**
+     * Provides the stream the Logger prints to
+     * @return the original console if the system streams are redirected, otherwise {@link System#out}
+     */
+    static PrintStream getConsole() {
+        PrintStream stream = console;
+        return stream == null ? System.out : stream;
+    }
+
+    public static synchronized void close() {
+        if (closed) {
+            return;
+        }
+        disableAsync();
+        uninstallSystemStreams();
         closed = true;
-        if (writer != null) {
+        if (name != null) {
             try {
-                writer.close();
-                renameLogFile(false);
+                output.closeFile();
+                renameLogFile(".log", false);
+                renameLogFile(".json", false);
             } catch (FileSystemException e) {
-                renameLogFile(true);
+                renameLogFile(".log", true);
+                renameLogFile(".json", true);
             }catch (Exception e) {
-                System.out.println(ANSIColors.getRed() + "Logger Error:");
-                e.printStackTrace();
-                System.out.print(ANSIColors.getReset());
+                getConsole().println(ANSIColors.getRed() + "Logger Error:");
+                e.printStackTrace(getConsole());
+                getConsole().print(ANSIColors.getReset());
             }
         }
     }
 
-    private static void renameLogFile(boolean secondTry) {
+    private static void renameLogFile(String extension, boolean secondTry) {
         try {
-            Path oldFile = Paths.get("logs/latest_" + name + ".log");
-            Path newFile = Paths.get("logs/" + Clock.getCompactDate("dd.MM.yyyy HH.mm").replace(" ", "_") + "_" + name + "-" + (secondTry ? 2 : "") + ".log");
+            Path oldFile = Paths.get("logs/latest_" + name + extension);
+            Path newFile = Paths.get("logs/" + Clock.getCompactDate("dd.MM.yyyy HH.mm").replace(" ", "_") + "_" + name + "-" + (secondTry ? 2 : "") + extension);
+            if (!Files.exists(oldFile)) {
+                return;
+            }
             if (Files.exists(newFile)) {
                 Files.delete(newFile);
-            }if (Files.exists(oldFile)) {
-                Files.move(oldFile, newFile);
             }
+            Files.move(oldFile, newFile);
         } catch (NoSuchFileException e) {
-            System.out.println(ANSIColors.getYellow() + "Logger could not find logfile: file might have been changed by other client");
+            getConsole().println(ANSIColors.getYellow() + "Logger could not find logfile: file might have been changed by other client");
         }catch (IOException e) {
-            System.out.println(ANSIColors.getRed() + "Logger Error:");
-            e.printStackTrace();
+            getConsole().println(ANSIColors.getRed() + "Logger Error:");
+            e.printStackTrace(getConsole());
         }
     }
 
-    private static String stacktraceAsString(Throwable cause) {
-        if (closed) {
-            return "";
+    /**
+     * Settings of the log file: by default the file is never rolled over and written through a FileChannel
+     */
+    public static final class FileSettings {
+        private long maxSize = 0;
+        private long maxAge = 0;
+        private boolean compressed = false;
+        private boolean memoryMapped = false;
+        private boolean json = false;
+
+        /**
+         * Rolls the file over once it reached a size
+         * @param bytes the maximum size of a file in bytes (0 disables the limit)
+         * @return the settings
+         */
+        public FileSettings maxSize(long bytes) {
+            this.maxSize = bytes;
+            return this;
+        }
+
+        /**
+         * Rolls the file over once it is older than the given age
+         * @param age the maximum age of a file (null disables the limit)
+         * @return the settings
+         */
+        public FileSettings maxAge(Duration age) {
+            this.maxAge = age == null ? 0 : age.toMillis();
+            return this;
+        }
+
+        /**
+         * Compresses rolled over files with gzip on a background thread
+         * @param compressed if the files should be compressed
+         * @return the settings
+         */
+        public FileSettings compressed(boolean compressed) {
+            this.compressed = compressed;
+            return this;
+        }
+
+        /**
+         * Writes the file through a memory mapping instead of FileChannel writes. Lines are collected in 1 MiB blocks and every full
+         * block is copied into a mapping of exactly its size, the rest is written through the FileChannel when the file is flushed or closed.
+         * @param memoryMapped if the file should be memory mapped
+         * @return the settings
+         */
+        public FileSettings memoryMapped(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
+            return this;
+        }
+
+        /**
+         * Additionally writes every record as one JSON object per line to "logs/latest_[name].json"
+         * (timestamp, level, thread, message, exception and the context of the thread)
+         * @param json if the JSON file should be written
+         * @return the settings
+         */
+        public FileSettings json(boolean json) {
+            this.json = json;
+            return this;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public long getMaxAge() {
+            return maxAge;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        public boolean isMemoryMapped() {
+            return memoryMapped;
         }
-        StringWriter stringWriter = new StringWriter();
-        PrintWriter printWriter = new PrintWriter(stringWriter);
-        cause.printStackTrace(printWriter);
-        return stringWriter.toString();
+
+        public boolean isJson() {
+            return json;
+        }
+    }
+
+    /**
+     * Decides what happens to new records in the asynchronous mode while the ring buffer is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * The logging thread waits until the writer thread has freed a slot
+         */
+        BLOCK,
+        /**
+         * Records below the configured level are discarded, all others wait for a free slot
+         */
+        DROP,
+        /**
+         * Records are put into an unbounded overflow queue which is written after the ring buffer
+         */
+        SPILL
     }
 
     /**
@@ -294,10 +814,15 @@ public class Logger {
          * Color of the message in the console
          */
         private final String color;
+        /**
+         * The part of the line between the timestamp and the message: "] [LEVEL] "
+         */
+        private final char[] label;
 
         Level(int tier, String color) {
             this.tier = tier;
             this.color = color;
+            this.label = ("] [" + name() + "] ").toCharArray();
         }
 
         public int getTier() {
@@ -307,6 +832,10 @@ public class Logger {
         public String getColor() {
             return color;
         }
+
+        char[] getLabel() {
+            return label;
+        }
     }
 
 }
@@ -0,0 +1,98 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Collects the raw bytes written to a {@link Logger} PrintStream in a reused buffer and logs every complete line.
+ * Each line is decoded from UTF-8 once, so characters spanning several bytes stay intact.
+ */
+final class LoggerOutputStream extends OutputStream {
+
+    private final Logger.Level level;
+    private byte[] buffer = new byte[256];
+    private int count = 0;
+
+    LoggerOutputStream(Logger.Level level) {
+        this.level = level;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            logLine();
+        } else {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            if (b[i] == '\n') {
+                append(b, start, i - start);
+                logLine();
+                start = i + 1;
+            }
+        }
+        append(b, start, end - start);
+    }
+
+    /**
+     * Logs the rest of the buffer as a line of its own
+     */
+    @Override
+    public synchronized void close() {
+        if (count > 0) {
+            logLine();
+        }
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (len > 0) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    private void logLine() {
+        int length = count;
+        if (length > 0 && buffer[length - 1] == '\r') {
+            length--;
+        }
+        count = 0;
+        if (Logger.isEnabled(level)) {
+            Logger.log(new String(buffer, 0, length, StandardCharsets.UTF_8), level);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+    A simple Messenger written in Java
+    Copyright (C) 2020-2022  Jared M. Bennett
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package net.jmb19905.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A logger for a named category (e.g. "events"). Categories form a tree by their dot separated names:
+ * a category without a level of its own uses the level of its parent, top level categories use the level of the {@link Logger}.
+ * The effective level is resolved whenever a level in the tree changes, so checking a disabled message costs a single volatile read.
+ * Unlike the static {@link Logger} methods, exceptions are only logged if their level is enabled.
+ */
+@SuppressWarnings("unused")
+public final class NamedLogger {
+
+    private static final Map<String, NamedLogger> loggers = new ConcurrentHashMap<>();
+    /**
+     * Guards the configured levels and the children of all loggers
+     */
+    private static final Object treeLock = new Object();
+
+    private final String name;
+    private final NamedLogger parent;
+    private final List<NamedLogger> children = new ArrayList<>();
+    private Logger.Level level = null;
+    private volatile int effectiveTier;
+
+    private NamedLogger(String name, NamedLogger parent) {
+        this.name = name;
+        this.parent = parent;
+        this.effectiveTier = parent == null ? Logger.getLevel().getTier() : parent.effectiveTier;
+    }
+
+    /**
+     * Provides the logger of a category, creating it (and its parents) if necessary
+     * @param name the dot separated name of the category
+     * @return the logger
+     */
+    static NamedLogger get(String name) {
+        NamedLogger logger = loggers.get(name);
+        if (logger != null) {
+            return logger;
+        }
+        if (name.isEmpty() || name.startsWith(".") || name.endsWith(".")) {
+            throw new IllegalArgumentException("Invalid logger name: \"" + name + "\"");
+        }
+        synchronized (treeLock) {
+            logger = loggers.get(name);
+            if (logger == null) {
+                int dot = name.lastIndexOf('.');
+                NamedLogger parent = dot < 0 ? null : get(name.substring(0, dot));
+                logger = new NamedLogger(name, parent);
+                if (parent != null) {
+                    parent.children.add(logger);
+                }
+                loggers.put(name, logger);
+            }
+            return logger;
+        }
+    }
+
+    /**
+     * Updates the effective level of all loggers which inherit the level of the root logger
+     */
+    static void rootLevelChanged(Logger.Level level) {
+        synchronized (treeLock) {
+            for (NamedLogger logger : loggers.values()) {
+                if (logger.parent == null) {
+                    logger.update();
+                }
+            }
+        }
+    }
+
+    private void update() {
+        if (level != null) {
+            effectiveTier = level.getTier();
+        } else {
+            effectiveTier = parent == null ? Logger.getLevel().getTier() : parent.effectiveTier;
+        }
+        for (NamedLogger child : children) {
+            child.update();
+        }
+    }
+
+    /**
+     * Provides the name of the category
+     * @return the dot separated name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Provides the parent category
+     * @return the parent or null if this is a top level category
+     */
+    public NamedLogger getParent() {
+        return parent;
+    }
+
+    /**
+     * Sets the level of this category and every category below it that has no level of its own
+     * @param level the level or null to use the level of the parent again
+     */
+    public void setLevel(Logger.Level level) {
+        synchronized (treeLock) {
+            this.level = level;
+            update();
+        }
+    }
+
+    /**
+     * Provides the level set for this category
+     * @return the level or null if the level is inherited
+     */
+    public Logger.Level getLevel() {
+        synchronized (treeLock) {
+            return level;
+        }
+    }
+
+    /**
+     * Provides the level that is actually used (set for this category or inherited)
+     * @return the effective level
+     */
+    public Logger.Level getEffectiveLevel() {
+        return Logger.Level.values()[effectiveTier];
+    }
+
+    /**
+     * Checks if messages of a level would be logged
+     *
+     * @param currentLevel the level
+     * @return if the level is enabled
+     */
+    public boolean isEnabled(Logger.Level currentLevel) {
+        return currentLevel.getTier() >= effectiveTier;
+    }
+
+    public boolean isTraceEnabled() {
+        return isEnabled(Logger.Level.TRACE);
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Logger.Level.DEBUG);
+    }
+
+    public boolean isInfoEnabled() {
+        return isEnabled(Logger.Level.INFO);
+    }
+
+    public boolean isWarnEnabled() {
+        return isEnabled(Logger.Level.WARN);
+    }
+
+    public boolean isErrorEnabled() {
+        return isEnabled(Logger.Level.ERROR);
+    }
+
+    public boolean isFatalEnabled() {
+        return isEnabled(Logger.Level.FATAL);
+    }
+
+    /**
+     * Logs a message
+     *
+     * @param message      the message
+     * @param currentLevel the Level of the message
+     */
+    public void log(String message, Logger.Level currentLevel) {
+        if (isEnabled(currentLevel)) {
+            Logger.publish(currentLevel, name, message, null);
+        }
+    }
+
+    /**
+     * Logs a message - the message is only created if the level is enabled
+     *
+     * @param message      supplies the message
+     * @param currentLevel the Level of the message
+     */
+    public void log(Supplier<String> message, Logger.Level currentLevel) {
+        if (isEnabled(currentLevel)) {
+            Logger.publish(currentLevel, name, message.get(), null);
+        }
+    }
+
+    /**
+     * Logs a message - every "{}" in the pattern is replaced by the next argument, but only if the level is enabled.
+     * If there is an argument left over and it is an exception it is logged as well.
+     *
+     * @param currentLevel the Level of the message
+     * @param pattern      the message with "{}" placeholders
+     * @param args         the arguments for the placeholders
+     */
+    public void log(Logger.Level currentLevel, String pattern, Object... args) {
+        if (isEnabled(currentLevel)) {
+            Logger.logFormatted(currentLevel, name, pattern, args);
+        }
+    }
+
+    /**
+     * Logs an Exception and a Message
+     *
+     * @param cause        the exception
+     * @param message      the message
+     * @param currentLevel the level of the exception and message
+     */
+    public void log(Throwable cause, String message, Logger.Level currentLevel) {
+        if (isEnabled(currentLevel)) {
+            Logger.publish(currentLevel, name, message, cause);
+        }
+    }
+
+    public void trace(String message) {
+        log(message, Logger.Level.TRACE);
+    }
+
+    public void trace(Supplier<String> message) {
+        log(message, Logger.Level.TRACE);
+    }
+
+    public void trace(String pattern, Object arg) {
+        if (isEnabled(Logger.Level.TRACE)) {
+            Logger.logFormatted(Logger.Level.TRACE, name, pattern, arg);
+        }
+    }
+
+    public void trace(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Logger.Level.TRACE)) {
+            Logger.logFormatted(Logger.Level.TRACE, name, pattern, arg1, arg2);
+        }
+    }
+
+    public void trace(String pattern, Object... args) {
+        log(Logger.Level.TRACE, pattern, args);
+    }
+
+    public void trace(Throwable cause) {
+        log(cause, "", Logger.Level.TRACE);
+    }
+
+    public void trace(Throwable cause, String message) {
+        log(cause, message, Logger.Level.TRACE);
+    }
+
+    public void debug(String message) {
+        log(message, Logger.Level.DEBUG);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(message, Logger.Level.DEBUG);
+    }
+
+    public void debug(String pattern, Object arg) {
+        if (isEnabled(Logger.Level.DEBUG)) {
+            Logger.logFormatted(Logger.Level.DEBUG, name, pattern, arg);
+        }
+    }
+
+    public void debug(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Logger.Level.DEBUG)) {
+            Logger.logFormatted(Logger.Level.DEBUG, name, pattern, arg1, arg2);
+        }
+    }
+
+    public void debug(String pattern, Object... args) {
+        log(Logger.Level.DEBUG, pattern, args);
+    }
+
+    public void debug(Throwable cause) {
+        log(cause, "", Logger.Level.DEBUG);
+    }
+
+    public void debug(Throwable cause, String message) {
+        log(cause, message, Logger.Level.DEBUG);
+    }
+
+    public void info(String message) {
+        log(message, Logger.Level.INFO);
+    }
+
+    public void info(Supplier<String> message) {
+        log(message, Logger.Level.INFO);
+    }
+
+    public void info(String pattern, Object arg) {
+        if (isEnabled(Logger.Level.INFO)) {
+            Logger.logFormatted(Logger.Level.INFO, name, pattern, arg);
+        }
+    }
+
+    public void info(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Logger.Level.INFO)) {
+            Logger.logFormatted(Logger.Level.INFO, name, pattern, arg1, arg2);
+        }
+    }
+
+    public void info(String pattern, Object... args) {
+        log(Logger.Level.INFO, pattern, args);
+    }
+
+    public void info(Throwable cause) {
+        log(cause, "", Logger.Level.INFO);
+    }
+
+    public void info(Throwable cause, String message) {
+        log(cause, message, Logger.Level.INFO);
+    }
+
+    public void warn(String message) {
+        log(message, Logger.Level.WARN);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(message, Logger.Level.WARN);
+    }
+
+    public void warn(String pattern, Object arg) {
+        if (isEnabled(Logger.Level.WARN)) {
+            Logger.logFormatted(Logger.Level.WARN, name, pattern, arg);
+        }
+    }
+
+    public void warn(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Logger.Level.WARN)) {
+            Logger.logFormatted(Logger.Level.WARN, name, pattern, arg1, arg2);
+        }
+    }
+
+    public void warn(String pattern, Object... args) {
+        log(Logger.Level.WARN, pattern, args);
+    }
+
+    public void warn(Throwable cause) {
+        log(cause, "", Logger.Level.WARN);
+    }
+
+    public void warn(Throwable cause, String message) {
+        log(cause, message, Logger.Level.WARN);
+    }
+
+    public void error(String message) {
+        log(message, Logger.Level.ERROR);
+    }
+
+    public void error(Supplier<String> message) {
+        log(message, Logger.Level.ERROR);
+    }
+
+    public void error(String pattern, Object arg) {
+        if (isEnabled(Logger.Level.ERROR)) {
+            Logger.logFormatted(Logger.Level.ERROR, name, pattern, arg);
+        }
+    }
+
+    public void error(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Logger.Level.ERROR)) {
+            Logger.logFormatted(Logger.Level.ERROR, name, pattern, arg1, arg2);
+        }
+    }
+
+    public void error(String pattern, Object... args) {
+        log(Logger.Level.ERROR, pattern, args);
+    }
+
+    public void error(Throwable cause) {
+        log(cause, "", Logger.Level.ERROR);
+    }
+
+    public void error(Throwable cause, String message) {
+        log(cause, message, Logger.Level.ERROR);
+    }
+
+    public void fatal(String message) {
+        log(message, Logger.Level.FATAL);
+    }
+
+    public void fatal(Supplier<String> message) {
+        log(message, Logger.Level.FATAL);
+    }
+
+    public void fatal(String pattern, Object arg) {
+        if (isEnabled(Logger.Level.FATAL)) {
+            Logger.logFormatted(Logger.Level.FATAL, name, pattern, arg);
+        }
+    }
+
+    public void fatal(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Logger.Level.FATAL)) {
+            Logger.logFormatted(Logger.Level.FATAL, name, pattern, arg1, arg2);
+        }
+    }
+
+    public void fatal(String pattern, Object... args) {
+        log(Logger.Level.FATAL, pattern, args);
+    }
+
+    public void fatal(Throwable cause) {
+        log(cause, "", Logger.Level.FATAL);
+    }
+
+    public void fatal(Throwable cause, String message) {
+        log(cause, message, Logger.Level.FATAL);
+    }
+
+    @Override
+    public String toString() {
+        return "NamedLogger{" +
+                "name='" + name + '\'' +
+                ", level=" + getEffectiveLevel() +
+                '}';
+    }
+}
@@ -18,23 +18,64 @@
 
 package net.jmb19905.util;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Hashes passwords for storage.
+ * <p>
+ * {@link #hash(String)} and {@link #verify(String, String)} use a slow key derivation function (an {@link Engine}, PBKDF2 by default)
+ * and store everything needed for verifying in one self-describing String: <code>$engine$cost$salt$hash</code> (salt and hash in Base64).
+ * This way the engine or cost can be changed later without breaking stored hashes - {@link #needsRehash(String)} tells when a hash should be renewed.
+ * {@link #hashPassword(String, byte[])} is the old single SHA-256 hash, only kept for checking existing hashes.
+ */
 public class PasswordHashing {
 
-    private static final SecureRandom random = new SecureRandom();
-    private static MessageDigest md;
+    /**
+     * PBKDF2 with HMAC-SHA256, the cost is the amount of iterations
+     */
+    public static final Engine PBKDF2_SHA256 = new Pbkdf2("pbkdf2-sha256", "PBKDF2WithHmacSHA256");
+    /**
+     * PBKDF2 with HMAC-SHA512, the cost is the amount of iterations
+     */
+    public static final Engine PBKDF2_SHA512 = new Pbkdf2("pbkdf2-sha512", "PBKDF2WithHmacSHA512");
 
-    static {
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    /**
+     * The range of salt and hash lengths a stored hash may have, anything else is corrupt or tampered with
+     */
+    private static final int MIN_STORED_LENGTH = 8;
+    private static final int MAX_STORED_LENGTH = 64;
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final ThreadLocal<MessageDigest> md = ThreadLocal.withInitial(() -> {
         try {
-            md = MessageDigest.getInstance("SHA-256");
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
-            Logger.error(e);
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
+    });
+
+    private static final Map<String, Engine> engines = new ConcurrentHashMap<>();
+    private static volatile Engine engine = PBKDF2_SHA256;
+    private static volatile int cost = 600_000;
+
+    static {
+        register(PBKDF2_SHA256);
+        register(PBKDF2_SHA512);
     }
 
     public static byte[] generateSalt() {
@@ -49,15 +90,285 @@ public class PasswordHashing {
         return salt;
     }
 
+    /**
+     * The old password hash: a single SHA-256 over salt and password. It is far too fast to resist guessing, use {@link #hash(String)} instead.
+     * @param password the password
+     * @param salt the salt
+     * @return the hash
+     */
     public static byte[] hashPassword(String password, byte[] salt) {
-        md.update(salt);
-        byte[] hashed = md.digest(password.getBytes(StandardCharsets.UTF_8));
-        md.reset();
-        return hashed;
+        MessageDigest digest = md.get();
+        digest.update(salt);
+        return digest.digest(password.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Checks a password against a hash created by {@link #hashPassword(String, byte[])}.
+     * The comparison takes the same time no matter where the hashes differ.
+     * @param toCheck the password to check
+     * @param hashedSalted the stored hash
+     * @param salt the salt of the stored hash
+     * @return if the password is correct
+     */
     public static boolean checkPassword(String toCheck, byte[] hashedSalted, byte[] salt) {
-        return Arrays.equals(hashPassword(toCheck, salt), hashedSalted);
+        return MessageDigest.isEqual(hashPassword(toCheck, salt), hashedSalted);
+    }
+
+    /**
+     * Hashes a password with the configured engine and cost and a new random salt
+     * @param password the password
+     * @return the encoded hash: <code>$engine$cost$salt$hash</code>
+     */
+    public static String hash(String password) {
+        return hash(password, engine, cost);
+    }
+
+    /**
+     * Hashes a password with a new random salt
+     * @param password the password
+     * @param engine the key derivation function, it is registered if necessary
+     * @param cost the cost, meaning depends on the engine
+     * @return the encoded hash: <code>$engine$cost$salt$hash</code>
+     * @throws IllegalArgumentException if the cost is below the minimum of the engine
+     */
+    public static String hash(String password, Engine engine, int cost) {
+        checkCost(engine, cost);
+        register(engine);
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = derive(engine, password, salt, cost, HASH_LENGTH);
+        return "$" + engine.getId() + "$" + cost + "$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against an encoded hash created by {@link #hash(String)}
+     * @param password the password to check
+     * @param encoded the stored hash
+     * @return if the password is correct, false if not or if the hash cannot be read
+     */
+    public static boolean verify(String password, String encoded) {
+        EncodedHash stored = EncodedHash.parse(encoded);
+        if (stored == null) {
+            return false;
+        }
+        byte[] hash;
+        try {
+            hash = derive(stored.engine, password, stored.salt, stored.cost, stored.hash.length);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Logger.warn(e, "Cannot verify password hash");
+            return false;
+        }
+        return MessageDigest.isEqual(hash, stored.hash);
+    }
+
+    /**
+     * Checks if a stored hash was made with a different engine or a lower cost than configured now.
+     * It should then be replaced by a new hash the next time the password is entered correctly.
+     * @param encoded the stored hash
+     * @return if the hash should be renewed
+     */
+    public static boolean needsRehash(String encoded) {
+        EncodedHash stored = EncodedHash.parse(encoded);
+        return stored == null || stored.engine != engine || stored.cost < cost;
+    }
+
+    /**
+     * Sets the engine and cost of new hashes
+     * @param engine the key derivation function, it is registered if necessary
+     * @param cost the cost, meaning depends on the engine
+     * @throws IllegalArgumentException if the cost is below the minimum of the engine
+     */
+    public static void configure(Engine engine, int cost) {
+        checkCost(engine, cost);
+        register(engine);
+        PasswordHashing.cost = cost;
+        PasswordHashing.engine = engine;
+    }
+
+    /**
+     * Makes an engine known, so hashes made with it can be verified
+     * @param engine the key derivation function
+     */
+    public static void register(Engine engine) {
+        engines.put(engine.getId(), engine);
+    }
+
+    /**
+     * Finds the cost at which one hash takes about the target time on this machine. The time is assumed to grow linearly with the cost.
+     * @param engine the key derivation function
+     * @param target how long a hash should take (e.g. 250 ms)
+     * @return the cost, at least the engine's minimum
+     */
+    public static int calibrate(Engine engine, Duration target) {
+        byte[] salt = new byte[SALT_LENGTH];
+        int probe = Math.max(engine.getMinimumCost(), 1000);
+        double nanosPerCost = 0;
+        // the first rounds warm up the JIT, the last one is measured with a cost close to the result
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            derive(engine, "calibration", salt, probe, HASH_LENGTH);
+            nanosPerCost = (double) Math.max(1, System.nanoTime() - start) / probe;
+            probe = (int) Math.min(Integer.MAX_VALUE, Math.max(engine.getMinimumCost(), target.toNanos() / nanosPerCost));
+        }
+        return probe;
+    }
+
+    /**
+     * @return the engine of new hashes
+     */
+    public static Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return the cost of new hashes
+     */
+    public static int getCost() {
+        return cost;
+    }
+
+    private static void checkCost(Engine engine, int cost) {
+        if (cost < engine.getMinimumCost()) {
+            throw new IllegalArgumentException("The cost of " + engine.getId() + " has to be at least " + engine.getMinimumCost());
+        }
+        if (cost > engine.getMaximumCost()) {
+            throw new IllegalArgumentException("The cost of " + engine.getId() + " may be at most " + engine.getMaximumCost());
+        }
+    }
+
+    private static byte[] derive(Engine engine, String password, byte[] salt, int cost, int length) {
+        char[] chars = password.toCharArray();
+        try {
+            return engine.derive(chars, salt, cost, length);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot hash password with " + engine.getId(), e);
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * A key derivation function for passwords. Implementations have to be thread-safe.
+     */
+    public interface Engine {
+
+        /**
+         * @return the name stored in encoded hashes, it may not contain '$'
+         */
+        String getId();
+
+        /**
+         * @return the lowest cost that is accepted
+         */
+        int getMinimumCost();
+
+        /**
+         * Stored hashes with a higher cost are rejected, so a corrupt or tampered hash cannot tie up the CPU
+         * @return the highest cost that is accepted, unlimited by default
+         */
+        default int getMaximumCost() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Derives the hash of a password
+         * @param password the password
+         * @param salt the salt
+         * @param cost how expensive the derivation is, meaning depends on the engine
+         * @param length the length of the hash in bytes
+         * @return the hash
+         * @throws GeneralSecurityException if the derivation fails
+         */
+        byte[] derive(char[] password, byte[] salt, int cost, int length) throws GeneralSecurityException;
+
+    }
+
+    private static final class Pbkdf2 implements Engine {
+        private final String id;
+        private final ThreadLocal<SecretKeyFactory> factory;
+
+        private Pbkdf2(String id, String algorithm) {
+            this.id = id;
+            this.factory = ThreadLocal.withInitial(() -> {
+                try {
+                    return SecretKeyFactory.getInstance(algorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(algorithm + " is not available", e);
+                }
+            });
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public int getMinimumCost() {
+            return 1000;
+        }
+
+        @Override
+        public int getMaximumCost() {
+            return 10_000_000;
+        }
+
+        @Override
+        public byte[] derive(char[] password, byte[] salt, int cost, int length) throws GeneralSecurityException {
+            PBEKeySpec spec = new PBEKeySpec(password, salt, cost, length * 8);
+            try {
+                return factory.get().generateSecret(spec).getEncoded();
+            } finally {
+                spec.clearPassword();
+            }
+        }
+    }
+
+    /**
+     * The parts of an encoded hash
+     */
+    private static final class EncodedHash {
+        private final Engine engine;
+        private final int cost;
+        private final byte[] salt;
+        private final byte[] hash;
+
+        private EncodedHash(Engine engine, int cost, byte[] salt, byte[] hash) {
+            this.engine = engine;
+            this.cost = cost;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        private static EncodedHash parse(String encoded) {
+            String[] parts = encoded.split("\\$");
+            if (parts.length != 5 || !parts[0].isEmpty()) {
+                Logger.warn("Invalid password hash format");
+                return null;
+            }
+            Engine engine = engines.get(parts[1]);
+            if (engine == null) {
+                Logger.warn("Unknown password hash engine: {}", parts[1]);
+                return null;
+            }
+            try {
+                int cost = Integer.parseInt(parts[2]);
+                if (cost < engine.getMinimumCost() || cost > engine.getMaximumCost()) {
+                    Logger.warn("Password hash cost is out of range: {}", cost);
+                    return null;
+                }
+                byte[] salt = DECODER.decode(parts[3]);
+                byte[] hash = DECODER.decode(parts[4]);
+                if (salt.length < MIN_STORED_LENGTH || salt.length > MAX_STORED_LENGTH || hash.length < MIN_STORED_LENGTH || hash.length > MAX_STORED_LENGTH) {
+                    Logger.warn("Password hash has an invalid salt or hash length");
+                    return null;
+                }
+                return new EncodedHash(engine, cost, salt, hash);
+            } catch (IllegalArgumentException e) {
+                Logger.warn(e, "Invalid password hash");
+                return null;
+            }
+        }
     }
 
 }
@@ -0,0 +1,161 @@
+package net.jmb19905.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs password checks on a dedicated, bounded pool of threads, so a burst of logins cannot occupy every core with expensive hashing.
+ * When all threads are busy and the queue is full, new checks fail right away with a {@link RejectedExecutionException}
+ * instead of piling up. The queue depth and the time spent waiting and hashing are recorded for monitoring.
+ */
+public class PasswordVerifier implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder checkNanos = new LongAdder();
+    private final AtomicLong maxCheckNanos = new AtomicLong();
+
+    /**
+     * Creates a PasswordVerifier
+     * @param threads the amount of threads that hash in parallel
+     * @param queueCapacity how many checks may wait for a thread
+     */
+    public PasswordVerifier(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "Password-Verifier-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), factory);
+    }
+
+    /**
+     * Checks a password against a hash created by {@link PasswordHashing#hash(String)}
+     * @param password the password to check
+     * @param encoded the stored hash
+     * @return a future with the result, it fails with a RejectedExecutionException if the verifier is overloaded
+     */
+    public CompletableFuture<Boolean> verify(String password, String encoded) {
+        return submit(() -> PasswordHashing.verify(password, encoded));
+    }
+
+    /**
+     * Checks a password against a hash created by {@link PasswordHashing#hashPassword(String, byte[])}
+     * @param toCheck the password to check
+     * @param hashedSalted the stored hash
+     * @param salt the salt of the stored hash
+     * @return a future with the result, it fails with a RejectedExecutionException if the verifier is overloaded
+     */
+    public CompletableFuture<Boolean> checkPassword(String toCheck, byte[] hashedSalted, byte[] salt) {
+        return submit(() -> PasswordHashing.checkPassword(toCheck, hashedSalted, salt));
+    }
+
+    private CompletableFuture<Boolean> submit(BooleanSupplier check) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long queued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                boolean correct = false;
+                Throwable error = null;
+                try {
+                    correct = check.getAsBoolean();
+                } catch (Throwable e) {
+                    // Errors too, otherwise the caller would wait forever
+                    error = e;
+                }
+                // recorded before completing, so the metrics already include a check when its caller continues
+                long time = System.nanoTime() - start;
+                waitNanos.add(start - queued);
+                checkNanos.add(time);
+                maxCheckNanos.accumulateAndGet(time, Math::max);
+                completed.increment();
+                if (error == null) {
+                    result.complete(correct);
+                } else {
+                    result.completeExceptionally(error);
+                    if (error instanceof Error e) {
+                        // still reaches the uncaught exception handler of the thread
+                        throw e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return the amount of checks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the amount of checks currently running
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the amount of finished checks
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the amount of checks that were rejected because the verifier was overloaded
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the average time a check took in nanoseconds, not counting the time in the queue
+     */
+    public long getAverageCheckNanos() {
+        long count = completed.sum();
+        return count == 0 ? 0 : checkNanos.sum() / count;
+    }
+
+    /**
+     * @return the longest time a check took in nanoseconds
+     */
+    public long getMaxCheckNanos() {
+        return maxCheckNanos.get();
+    }
+
+    /**
+     * @return the average time a check waited in the queue in nanoseconds
+     */
+    public long getAverageWaitNanos() {
+        long count = completed.sum();
+        return count == 0 ? 0 : waitNanos.sum() / count;
+    }
+
+    /**
+     * Stops accepting checks, the queued ones are still run
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+}
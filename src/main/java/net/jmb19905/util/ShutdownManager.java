@@ -36,6 +36,7 @@ public class ShutdownManager {
         Logger.info("Stopping...");
         cleanUpActions.forEach(CleanUpAction::cleanUp);
         Logger.info("Cleaned up");
+        Logger.flush();
         System.exit(code);
     }
 
@@ -3,32 +3,45 @@ package net.jmb19905.util.crypto;
 import net.jmb19905.util.Logger;
 
 import javax.crypto.*;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
 
 /**
  * Provides Encryption according to the AES (Advanced Encryption Standard)
  */
 public class AesEncryption implements IEncryption {
 
+    private static final int BLOCK_SIZE = 16;
+    private static final byte[] NO_PREFIX = new byte[0];
+
     private final SecretKey key;
+    private final OutputEncoding encoding;
 
     /**
-     * Create an object of type AesEncryption
+     * Create an object of type AesEncryption which encodes its output with Base64
      * @param keyProvider the KeyProvider which supplies the cryptographic keys
      */
     public AesEncryption(KeyProvider keyProvider) {
+        this(keyProvider, OutputEncoding.BASE64);
+    }
+
+    /**
+     * Create an object of type AesEncryption
+     * @param keyProvider the KeyProvider which supplies the cryptographic keys
+     * @param encoding how the byte array methods encode the ciphertext
+     */
+    public AesEncryption(KeyProvider keyProvider, OutputEncoding encoding) {
         key = keyProvider.get();
+        this.encoding = encoding;
     }
 
     @Override
     public byte[] encrypt(byte[] in) {
         try {
-            Cipher c = Cipher.getInstance("AES");
-            c.init(Cipher.ENCRYPT_MODE, key);
-            byte[] encVal = c.doFinal(in);
-            return Base64.getEncoder().withoutPadding().encode(encVal);
+            Cipher c = CipherCache.get("AES", Cipher.ENCRYPT_MODE, key);
+            return encoding.encode(c, NO_PREFIX, in);
         } catch (BadPaddingException | InvalidKeyException | NoSuchPaddingException | IllegalBlockSizeException | NoSuchAlgorithmException e) {
             Logger.log(e, "Error encrypting", Logger.Level.ERROR);
         } catch (IllegalArgumentException e) {
@@ -40,10 +53,9 @@ public class AesEncryption implements IEncryption {
     @Override
     public byte[] decrypt(byte[] in) {
         try {
-            Cipher c = Cipher.getInstance("AES");
-            c.init(Cipher.DECRYPT_MODE, key);
-            byte[] decodedValue = Base64.getDecoder().decode(in);
-            return c.doFinal(decodedValue);
+            ByteBuffer decoded = encoding.decode(in);
+            Cipher c = CipherCache.get("AES", Cipher.DECRYPT_MODE, key);
+            return c.doFinal(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
         } catch (InvalidKeyException | NoSuchPaddingException | IllegalBlockSizeException | NoSuchAlgorithmException | IllegalArgumentException e) {
             Logger.error(e, "Error decrypting");
         } catch (BadPaddingException e) {
@@ -51,4 +63,29 @@ public class AesEncryption implements IEncryption {
         }
         return in;
     }
+
+    @Override
+    public OutputEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public int encrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        return CipherCache.doFinal("AES", Cipher.ENCRYPT_MODE, key, in, out);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        return CipherCache.doFinal("AES", Cipher.DECRYPT_MODE, key, in, out);
+    }
+
+    @Override
+    public int getEncryptedSize(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
+
+    @Override
+    public int getDecryptedSize(int length) {
+        return length;
+    }
 }
@@ -0,0 +1,129 @@
+package net.jmb19905.util.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one Cipher per thread and transformation, so the provider lookup of Cipher.getInstance only happens once.
+ * A Cipher resets itself to its initialized state after doFinal (also when it fails), so as long as the mode and key
+ * stay the same it can be reused without calling init again.
+ */
+final class CipherCache {
+
+    private static final int MAX_SCRATCH_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Map<String, Entry>> ciphers = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private CipherCache() {}
+
+    /**
+     * Provides this thread's Cipher for a transformation initialized with the mode and key
+     * @param transformation the transformation e.g. "AES"
+     * @param mode the mode e.g. Cipher.ENCRYPT_MODE
+     * @param key the key
+     * @return the initialized Cipher
+     */
+    static Cipher get(String transformation, int mode, Key key) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        Entry entry = entry(transformation);
+        if (entry.key != key || entry.mode != mode) {
+            entry.key = null;
+            entry.cipher.init(mode, key);
+            entry.key = key;
+            entry.mode = mode;
+        }
+        return entry.cipher;
+    }
+
+    /**
+     * Provides this thread's Cipher for a transformation which the caller has to initialize.
+     * Used for transformations that need new parameters for every message (e.g. a nonce).
+     * @param transformation the transformation e.g. "AES/GCM/NoPadding"
+     * @return the Cipher
+     */
+    static Cipher get(String transformation) throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Entry entry = entry(transformation);
+        // the caller initializes it, so the next get(transformation, mode, key) has to as well
+        entry.key = null;
+        return entry.cipher;
+    }
+
+    /**
+     * Runs the remaining bytes of a buffer through this thread's Cipher initialized with the mode and key
+     * @see #doFinal(Cipher, ByteBuffer, ByteBuffer)
+     */
+    static int doFinal(String transformation, int mode, Key key, ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        return doFinal(get(transformation, mode, key), in, out);
+    }
+
+    /**
+     * Runs the remaining bytes of a buffer through an initialized Cipher. If it fails the positions of both buffers are restored.
+     * @param cipher the Cipher
+     * @param in the input
+     * @param out receives the output
+     * @return the amount of bytes written to out
+     * @throws ShortBufferException if out has not enough space left
+     */
+    static int doFinal(Cipher cipher, ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        int required = cipher.getOutputSize(in.remaining());
+        if (out.remaining() < required) {
+            throw new ShortBufferException("Output needs " + required + " bytes but only has " + out.remaining());
+        }
+        int inPosition = in.position();
+        int outPosition = out.position();
+        try {
+            return cipher.doFinal(in, out);
+        } catch (GeneralSecurityException e) {
+            in.position(inPosition);
+            out.position(outPosition);
+            throw e;
+        }
+    }
+
+    /**
+     * Provides this thread's scratch array for intermediate results. Larger sizes than 64 KB get a new array, so big messages are not kept alive.
+     * @param size the minimum size
+     * @return an array of at least the size
+     */
+    static byte[] scratch(int size) {
+        byte[] array = scratch.get();
+        if (array.length >= size) {
+            return array;
+        }
+        if (size > MAX_SCRATCH_SIZE) {
+            return new byte[size];
+        }
+        array = new byte[Math.min(Math.max(size, array.length * 2), MAX_SCRATCH_SIZE)];
+        scratch.set(array);
+        return array;
+    }
+
+    private static Entry entry(String transformation) throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Map<String, Entry> map = ciphers.get();
+        Entry entry = map.get(transformation);
+        if (entry == null) {
+            entry = new Entry(Cipher.getInstance(transformation));
+            map.put(transformation, entry);
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+        private final Cipher cipher;
+        private Key key;
+        private int mode;
+
+        private Entry(Cipher cipher) {
+            this.cipher = cipher;
+        }
+    }
+
+}
@@ -29,8 +29,9 @@ import net.jmb19905.util.SerializationUtility;
 import javax.crypto.*;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.*;
-import java.util.Base64;
+import java.time.Duration;
 
 /**
  * An Encryption holds the Public and Private keys for a certain Connection (Server - Client | Client - Client)
@@ -45,23 +46,34 @@ public class Encryption implements IEncryption {
     private PrivateKey privateKey;
     private KeyAgreement keyAgreement;
     private byte[] sharedSecret;
+    private PublicKey receiverKey;
+    private volatile Key key;
+    private volatile OutputEncoding encoding = OutputEncoding.BASE64;
 
     private static final String ALGO = "AES";
     private static final int KEY_SIZE = 256;
+    private static final int BLOCK_SIZE = 16;
+    private static final byte[] NO_PREFIX = new byte[0];
 
     /**
      * Creates a new Encryption with unique Private and Public Keys
      */
     public Encryption() {
-        KeyPairGenerator kpg;
         try {
-            kpg = KeyPairGenerator.getInstance("EC");
-            kpg.initialize(KEY_SIZE);
-            KeyPair kp = kpg.generateKeyPair();
-            publickey = kp.getPublic();
-            privateKey = kp.getPrivate();
-            keyAgreement = KeyAgreement.getInstance("ECDH");
-            keyAgreement.init(privateKey);
+            init(createKeyPairGenerator().generateKeyPair());
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            Logger.log(e, "Error initializing Encryption", Logger.Level.ERROR);
+        }
+    }
+
+    /**
+     * Creates a new Encryption with a key pair that was generated in advance, so the caller doesn't wait for the EC key generation
+     *
+     * @param keyPairs the pool that supplies the Private and Public Key
+     */
+    public Encryption(KeyPairPool keyPairs) {
+        try {
+            init(keyPairs.take());
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
             Logger.log(e, "Error initializing Encryption", Logger.Level.ERROR);
         }
@@ -95,6 +107,25 @@ public class Encryption implements IEncryption {
         }
     }
 
+    private void init(KeyPair kp) throws NoSuchAlgorithmException, InvalidKeyException {
+        publickey = kp.getPublic();
+        privateKey = kp.getPrivate();
+        keyAgreement = KeyAgreement.getInstance("ECDH");
+        keyAgreement.init(privateKey);
+    }
+
+    /**
+     * Creates a generator for the key pairs of an Encryption
+     *
+     * @return the generator
+     * @throws NoSuchAlgorithmException if EC is not supported
+     */
+    static KeyPairGenerator createKeyPairGenerator() throws NoSuchAlgorithmException {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+        kpg.initialize(KEY_SIZE);
+        return kpg;
+    }
+
     /**
      * Generates the Shared Key from the other side's PublicKey
      *
@@ -104,11 +135,34 @@ public class Encryption implements IEncryption {
         try {
             keyAgreement.doPhase(publicKey, true);
             sharedSecret = keyAgreement.generateSecret();
+            receiverKey = publicKey;
+            key = null;
         } catch (InvalidKeyException e) {
             Logger.log(e, "Invalid Key", Logger.Level.ERROR);
         }
     }
 
+    /**
+     * Uses the Shared Key from the cache if this pair of keys already agreed on one, otherwise generates it from
+     * the other side's PublicKey and stores it in the cache
+     *
+     * @param publicKey the PublicKey of the other side
+     * @param sessions  the cache of Shared Keys
+     */
+    public void setReceiverPublicKey(PublicKey publicKey, SessionCache sessions) {
+        byte[] cached = sessions.get(publickey, publicKey);
+        if (cached != null) {
+            sharedSecret = cached;
+            receiverKey = publicKey;
+            key = null;
+            return;
+        }
+        setReceiverPublicKey(publicKey);
+        if (sharedSecret != null) {
+            sessions.put(publickey, publicKey, sharedSecret);
+        }
+    }
+
     /**
      * Encrypts a byte-array using the Shared Key
      *
@@ -117,11 +171,8 @@ public class Encryption implements IEncryption {
      */
     public byte[] encrypt(byte[] in) {
         try {
-            Key key = generateKey();
-            Cipher c = Cipher.getInstance(ALGO);
-            c.init(Cipher.ENCRYPT_MODE, key);
-            byte[] encVal = c.doFinal(in);
-            return Base64.getEncoder().withoutPadding().encode(encVal);
+            Cipher c = CipherCache.get(ALGO, Cipher.ENCRYPT_MODE, generateKey());
+            return encoding.encode(c, NO_PREFIX, in);
         } catch (BadPaddingException | InvalidKeyException | NoSuchPaddingException | IllegalBlockSizeException | NoSuchAlgorithmException e) {
             Logger.log(e, "Error encrypting", Logger.Level.ERROR);
         } catch (IllegalArgumentException e) {
@@ -138,11 +189,9 @@ public class Encryption implements IEncryption {
      */
     public byte[] decrypt(byte[] encryptedData) {
         try {
-            Key key = generateKey();
-            Cipher c = Cipher.getInstance(ALGO);
-            c.init(Cipher.DECRYPT_MODE, key);
-            byte[] decodedValue = Base64.getDecoder().decode(encryptedData);
-            return c.doFinal(decodedValue);
+            Cipher c = CipherCache.get(ALGO, Cipher.DECRYPT_MODE, generateKey());
+            ByteBuffer decoded = encoding.decode(encryptedData);
+            return c.doFinal(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
         } catch (InvalidKeyException | NoSuchPaddingException | IllegalBlockSizeException | NoSuchAlgorithmException | IllegalArgumentException e) {
             Logger.error(e, "Error decrypting");
         } catch (BadPaddingException e) {
@@ -151,6 +200,85 @@ public class Encryption implements IEncryption {
         return encryptedData;
     }
 
+    /**
+     * Creates a SessionEncryption for this connection: it derives separate send and receive keys from the Shared Key
+     * and replaces them regularly, which this Encryption (using the Shared Key directly) doesn't
+     *
+     * @param rekeyBytes    after how many encrypted bytes the send key is replaced
+     * @param rekeyInterval after how much time the send key is replaced
+     * @return the SessionEncryption, the other side has to use one as well
+     * @throws GeneralSecurityException if the keys cannot be derived
+     * @throws IllegalStateException if the other side's PublicKey is not set yet
+     */
+    public SessionEncryption openSession(long rekeyBytes, Duration rekeyInterval) throws GeneralSecurityException {
+        if (!isUsable() || receiverKey == null) {
+            throw new IllegalStateException("No Shared Key - the other side's PublicKey is missing");
+        }
+        return new SessionEncryption(sharedSecret, publickey, receiverKey, rekeyBytes, rekeyInterval, encoding);
+    }
+
+    /**
+     * Creates a SessionEncryption for this connection with the default rekey limits
+     *
+     * @return the SessionEncryption, the other side has to use one as well
+     * @throws GeneralSecurityException if the keys cannot be derived
+     * @throws IllegalStateException if the other side's PublicKey is not set yet
+     * @see #openSession(long, Duration)
+     */
+    public SessionEncryption openSession() throws GeneralSecurityException {
+        return openSession(SessionEncryption.DEFAULT_REKEY_BYTES, SessionEncryption.DEFAULT_REKEY_INTERVAL);
+    }
+
+    /**
+     * Sets how {@link #encrypt(byte[])} encodes the ciphertext (Base64 by default). Both sides have to use the same encoding.
+     *
+     * @param encoding the encoding
+     */
+    public void setEncoding(OutputEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public OutputEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer using the Shared Key
+     *
+     * @param in the input data
+     * @param out receives the encrypted data
+     * @return the amount of bytes written to out
+     * @throws GeneralSecurityException if encrypting fails or there is no Shared Key yet
+     */
+    @Override
+    public int encrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        return CipherCache.doFinal(ALGO, Cipher.ENCRYPT_MODE, requireKey(), in, out);
+    }
+
+    /**
+     * Decrypts the remaining bytes of a buffer using the Shared Key
+     *
+     * @param in the encrypted data
+     * @param out receives the decrypted data
+     * @return the amount of bytes written to out
+     * @throws GeneralSecurityException if decrypting fails or there is no Shared Key yet
+     */
+    @Override
+    public int decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        return CipherCache.doFinal(ALGO, Cipher.DECRYPT_MODE, requireKey(), in, out);
+    }
+
+    @Override
+    public int getEncryptedSize(int length) {
+        return (length / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
+
+    @Override
+    public int getDecryptedSize(int length) {
+        return length;
+    }
+
     /**
      * Provides the PublicKey of the Encryption endpoint
      * @return the PublicKey
@@ -169,8 +297,24 @@ public class Encryption implements IEncryption {
     }
 
 
+    /**
+     * Provides the AES key derived from the Shared Key, it is only created once per Shared Key
+     * @return the key
+     */
     private Key generateKey() {
-        return new SecretKeySpec(sharedSecret, ALGO);
+        Key k = key;
+        if (k == null) {
+            k = new SecretKeySpec(sharedSecret, ALGO);
+            key = k;
+        }
+        return k;
+    }
+
+    private Key requireKey() throws InvalidKeyException {
+        if (!isUsable()) {
+            throw new InvalidKeyException("No Shared Key - the other side's PublicKey is missing");
+        }
+        return generateKey();
     }
 
     /**
@@ -20,20 +20,58 @@ package net.jmb19905.util.crypto;
 
 import net.jmb19905.util.Logger;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.KeyFactory;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
 
 /**
  * Utility methods used for Encryption
  */
 public class EncryptionUtility {
 
+    /**
+     * The amount of tasks per worker thread for bulk operations, so that workers that finish early can take over the rest
+     */
+    private static final int TASKS_PER_WORKER = 4;
+
+    private static final ThreadLocal<KeyFactory> keyFactory = new ThreadLocal<>();
+
+    /**
+     * Decoded keys by their encoded form, the least recently used ones are evicted
+     */
+    private static final Map<ByteBuffer, Key> decodedKeys = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Key> eldest) {
+            return size() > keyCacheSize;
+        }
+    };
+    private static int keyCacheSize = 0;
+
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
     private EncryptionUtility() {}
 
     /**
@@ -44,8 +82,12 @@ public class EncryptionUtility {
      */
     public static PublicKey createPublicKeyFromData(byte[] encodedKey) {
         try {
-            KeyFactory factory = KeyFactory.getInstance("EC");
-            return factory.generatePublic(new X509EncodedKeySpec(encodedKey));
+            if (getCachedKey(encodedKey) instanceof PublicKey cached) {
+                return cached;
+            }
+            PublicKey key = keyFactory().generatePublic(new X509EncodedKeySpec(encodedKey));
+            cacheKey(encodedKey, key);
+            return key;
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
             Logger.warn(e, "Error retrieving PublicKey");
             return null;
@@ -60,8 +102,12 @@ public class EncryptionUtility {
      */
     public static PrivateKey createPrivateKeyFromData(byte[] encodedKey) {
         try {
-            KeyFactory factory = KeyFactory.getInstance("EC");
-            return factory.generatePrivate(new PKCS8EncodedKeySpec(encodedKey));
+            if (getCachedKey(encodedKey) instanceof PrivateKey cached) {
+                return cached;
+            }
+            PrivateKey key = keyFactory().generatePrivate(new PKCS8EncodedKeySpec(encodedKey));
+            cacheKey(encodedKey, key);
+            return key;
         } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
             Logger.log(e, "Error retrieving PrivateKey", Logger.Level.WARN);
             return null;
@@ -69,25 +115,179 @@ public class EncryptionUtility {
     }
 
     /**
-     * Encrypts a String in the UTF-8 encoding
+     * Decodes many PublicKeys at once, e.g. when loading the stored Encryptions at startup
+     *
+     * @param encodedKeys the keys encoded as byte-arrays
+     * @return the decoded PublicKeys in the same order (null where a key is invalid)
+     */
+    public static PublicKey[] createPublicKeysFromData(byte[][] encodedKeys) {
+        PublicKey[] keys = new PublicKey[encodedKeys.length];
+        decodeKeys(encodedKeys, keys, PublicKey.class, (factory, encodedKey) -> factory.generatePublic(new X509EncodedKeySpec(encodedKey)));
+        return keys;
+    }
+
+    /**
+     * Decodes many PrivateKeys at once, e.g. when loading the stored Encryptions at startup
+     *
+     * @param encodedKeys the keys encoded as byte-arrays
+     * @return the decoded PrivateKeys in the same order (null where a key is invalid)
+     */
+    public static PrivateKey[] createPrivateKeysFromData(byte[][] encodedKeys) {
+        PrivateKey[] keys = new PrivateKey[encodedKeys.length];
+        decodeKeys(encodedKeys, keys, PrivateKey.class, (factory, encodedKey) -> factory.generatePrivate(new PKCS8EncodedKeySpec(encodedKey)));
+        return keys;
+    }
+
+    private interface KeyDecoder<K extends Key> {
+        K decode(KeyFactory factory, byte[] encodedKey) throws InvalidKeySpecException;
+    }
+
+    /**
+     * Decodes a batch with one KeyFactory lookup and one cache lock for the lookups and one for the inserts,
+     * instead of doing both per key
+     */
+    private static <K extends Key> void decodeKeys(byte[][] encodedKeys, K[] keys, Class<K> type, KeyDecoder<K> decoder) {
+        if (encodedKeys.length == 0) {
+            return;
+        }
+        synchronized (decodedKeys) {
+            if (keyCacheSize > 0) {
+                for (int i = 0; i < encodedKeys.length; i++) {
+                    Key cached = decodedKeys.get(ByteBuffer.wrap(encodedKeys[i]));
+                    if (type.isInstance(cached)) {
+                        keys[i] = type.cast(cached);
+                    }
+                }
+            }
+        }
+        KeyFactory factory;
+        try {
+            factory = keyFactory();
+        } catch (NoSuchAlgorithmException e) {
+            Logger.warn(e, "Error retrieving " + type.getSimpleName() + "s");
+            return;
+        }
+        boolean[] decoded = new boolean[keys.length];
+        boolean anyDecoded = false;
+        for (int i = 0; i < encodedKeys.length; i++) {
+            if (keys[i] != null) {
+                continue;
+            }
+            try {
+                keys[i] = decoder.decode(factory, encodedKeys[i]);
+                decoded[i] = true;
+                anyDecoded = true;
+            } catch (InvalidKeySpecException e) {
+                Logger.warn(e, "Error retrieving " + type.getSimpleName());
+            }
+        }
+        if (!anyDecoded) {
+            return;
+        }
+        synchronized (decodedKeys) {
+            if (keyCacheSize > 0) {
+                for (int i = 0; i < encodedKeys.length; i++) {
+                    if (decoded[i]) {
+                        // copied, the caller may reuse its arrays
+                        decodedKeys.put(ByteBuffer.wrap(encodedKeys[i].clone()), keys[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets how many decoded keys are kept, so decoding the same key again is only a lookup. The default is 0 (no caching).
+     *
+     * @param size the maximum amount of cached keys
+     */
+    public static void setKeyCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative: " + size);
+        }
+        synchronized (decodedKeys) {
+            keyCacheSize = size;
+            Iterator<ByteBuffer> eldest = decodedKeys.keySet().iterator();
+            while (decodedKeys.size() > size) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static Key getCachedKey(byte[] encodedKey) {
+        synchronized (decodedKeys) {
+            return keyCacheSize == 0 ? null : decodedKeys.get(ByteBuffer.wrap(encodedKey));
+        }
+    }
+
+    private static void cacheKey(byte[] encodedKey, Key key) {
+        synchronized (decodedKeys) {
+            if (keyCacheSize > 0) {
+                // copied, the caller may reuse its array
+                decodedKeys.put(ByteBuffer.wrap(encodedKey.clone()), key);
+            }
+        }
+    }
+
+    /**
+     * Provides this thread's KeyFactory for EC keys, KeyFactory.getInstance is only called once per thread
+     */
+    private static KeyFactory keyFactory() throws NoSuchAlgorithmException {
+        KeyFactory factory = keyFactory.get();
+        if (factory == null) {
+            factory = KeyFactory.getInstance("EC");
+            keyFactory.set(factory);
+        }
+        return factory;
+    }
+
+    /**
+     * Creates a short identifier for a key: the Base64 encoded SHA-256 hash of its encoded form
+     *
+     * @param key the key
+     * @return the fingerprint
+     */
+    public static String fingerprint(Key key) {
+        return Base64.getEncoder().withoutPadding().encodeToString(sha256.get().digest(key.getEncoded()));
+    }
+
+    /**
+     * Encrypts a String in the UTF-8 encoding.
+     * The result is always Base64 text - if the Encryption produces raw binary it is encoded here.
      *
      * @param encryption the Encryption that will encrypt the String
      * @param value      the String to be encrypted
      * @return the encrypted String
      */
     public static String encryptString(IEncryption encryption, String value) {
-        return new String(encryption.encrypt(value.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        byte[] encrypted = encryption.encrypt(value.getBytes(StandardCharsets.UTF_8));
+        if (encryption.getEncoding() == OutputEncoding.RAW) {
+            return Base64.getEncoder().withoutPadding().encodeToString(encrypted);
+        }
+        return new String(encrypted, StandardCharsets.UTF_8);
     }
 
     /**
-     * Decrypts a String in the UTF-8 encoding
+     * Decrypts a String in the UTF-8 encoding created by {@link #encryptString(IEncryption, String)}
      *
      * @param encryption the Encryption that will decrypt the String
      * @param value      the String to be decrypted
-     * @return the decrypted String
+     * @return the decrypted String, null if an authenticated encryption cannot verify it
      */
     public static String decryptString(IEncryption encryption, String value) {
-        return new String(encryption.decrypt(value.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        byte[] decrypted;
+        if (encryption.getEncoding() == OutputEncoding.RAW) {
+            try {
+                decrypted = encryption.decrypt(Base64.getDecoder().decode(value));
+            } catch (IllegalArgumentException e) {
+                Logger.error(e, "Error decrypting - the String is not Base64");
+                return value;
+            }
+        } else {
+            decrypted = encryption.decrypt(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return decrypted == null ? null : new String(decrypted, StandardCharsets.UTF_8);
     }
 
     /**
@@ -118,4 +318,64 @@ public class EncryptionUtility {
         return data;
     }
 
+    /**
+     * Encrypts a 2-Dimensional array of bytes by spreading the chunks across an Executor (e.g. a ForkJoinPool).
+     * The chunks keep their order and each worker thread reuses its own Cipher.
+     *
+     * @param encryption the Encryption that will be used for encryption, it has to be thread-safe (all implementations in this package are)
+     * @param data       the 2D byte-array
+     * @param executor   the Executor that runs the work
+     * @return an encrypted 2D byte-array
+     */
+    public static byte[][] encrypt2DBytes(IEncryption encryption, byte[][] data, Executor executor) {
+        return transformParallel(data, executor, encryption::encrypt);
+    }
+
+    /**
+     * Decrypts a 2-Dimensional array of bytes by spreading the chunks across an Executor (e.g. a ForkJoinPool).
+     * The chunks keep their order and each worker thread reuses its own Cipher.
+     *
+     * @param encryption the Encryption that will be used for decryption, it has to be thread-safe (all implementations in this package are)
+     * @param data       the 2D byte-array
+     * @param executor   the Executor that runs the work
+     * @return a decrypted 2D byte-array
+     */
+    public static byte[][] decrypt2DBytes(IEncryption encryption, byte[][] data, Executor executor) {
+        return transformParallel(data, executor, encryption::decrypt);
+    }
+
+    /**
+     * Replaces every chunk with its transformed version. The chunks are split into contiguous ranges, one task per range,
+     * and every result is written to the index of its input, which keeps the order without any sorting.
+     */
+    private static byte[][] transformParallel(byte[][] data, Executor executor, UnaryOperator<byte[]> operation) {
+        int workers = executor instanceof ForkJoinPool pool ? pool.getParallelism() : Runtime.getRuntime().availableProcessors();
+        int tasks = Math.min(data.length, workers * TASKS_PER_WORKER);
+        if (tasks <= 1) {
+            for (int i = 0; i < data.length; i++) {
+                data[i] = operation.apply(data[i]);
+            }
+            return data;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+        for (int task = 0; task < tasks; task++) {
+            int start = (int) ((long) data.length * task / tasks);
+            int end = (int) ((long) data.length * (task + 1) / tasks);
+            futures[task] = CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    data[i] = operation.apply(data[i]);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return data;
+    }
+
 }
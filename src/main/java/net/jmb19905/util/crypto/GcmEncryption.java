@@ -0,0 +1,444 @@
+package net.jmb19905.util.crypto;
+
+import net.jmb19905.util.Logger;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Authenticated encryption with AES-GCM. Every message gets a fresh random nonce which is sent in front of the ciphertext.
+ * <p>
+ * Besides whole messages, payloads of any size can be encrypted as a stream: the data is split into segments of
+ * {@link #SEGMENT_SIZE} bytes which are sealed one by one, so only a single segment is held in memory.
+ * A stream starts with a random 8 byte nonce prefix. Each segment is written as a 4 byte header (the highest bit marks the
+ * final segment, the rest is the length of the ciphertext) followed by the ciphertext and tag. The nonce of a segment is the
+ * prefix followed by the segment number and the final marker is authenticated, so segments cannot be reordered, dropped or cut off.
+ */
+public class GcmEncryption implements IEncryption {
+
+    /**
+     * The amount of plaintext bytes in each segment of a stream
+     */
+    public static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    private static final int PREFIX_LENGTH = 8;
+    private static final int FINAL_SEGMENT = 0x80000000;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final SecretKey key;
+    private final OutputEncoding encoding;
+
+    /**
+     * Create an object of type GcmEncryption which encodes its messages with Base64
+     * @param keyProvider the KeyProvider which supplies the AES key
+     */
+    public GcmEncryption(KeyProvider keyProvider) {
+        this(keyProvider.get());
+    }
+
+    /**
+     * Create an object of type GcmEncryption which encodes its messages with Base64
+     * @param key the AES key
+     */
+    public GcmEncryption(SecretKey key) {
+        this(key, OutputEncoding.BASE64);
+    }
+
+    /**
+     * Create an object of type GcmEncryption
+     * @param key the AES key
+     * @param encoding how the byte array methods encode the messages
+     */
+    public GcmEncryption(SecretKey key, OutputEncoding encoding) {
+        this.key = key;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Encrypts a message: the output is the nonce followed by the ciphertext and tag in the chosen encoding
+     * @param in the input data
+     * @return the encrypted data
+     */
+    @Override
+    public byte[] encrypt(byte[] in) {
+        try {
+            byte[] nonce = new byte[NONCE_LENGTH];
+            random.nextBytes(nonce);
+            Cipher c = CipherCache.get(TRANSFORMATION);
+            c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            return encoding.encode(c, nonce, in);
+        } catch (GeneralSecurityException e) {
+            Logger.log(e, "Error encrypting", Logger.Level.ERROR);
+        } catch (IllegalArgumentException e) {
+            Logger.log(e, "Error encrypting! Invalid Key", Logger.Level.WARN);
+        }
+        return in;
+    }
+
+    /**
+     * Decrypts and verifies a message created by {@link #encrypt(byte[])}
+     * @param in the encrypted data
+     * @return the decrypted data, null if the key is wrong or the message was modified
+     */
+    @Override
+    public byte[] decrypt(byte[] in) {
+        try {
+            ByteBuffer decoded = encoding.decode(in);
+            if (decoded.remaining() < NONCE_LENGTH + TAG_LENGTH) {
+                throw new IllegalArgumentException("Message is too short");
+            }
+            int offset = decoded.arrayOffset() + decoded.position();
+            Cipher c = CipherCache.get(TRANSFORMATION);
+            c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, decoded.array(), offset, NONCE_LENGTH));
+            return c.doFinal(decoded.array(), offset + NONCE_LENGTH, decoded.remaining() - NONCE_LENGTH);
+        } catch (AEADBadTagException e) {
+            Logger.error(e, "Error decrypting - wrong key or modified message");
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            Logger.error(e, "Error decrypting");
+        }
+        return null;
+    }
+
+    @Override
+    public OutputEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer: the nonce followed by the ciphertext and tag is written to out (without Base64)
+     * @param in the input data
+     * @param out receives the encrypted data
+     * @return the amount of bytes written to out
+     * @throws GeneralSecurityException if encrypting fails
+     */
+    @Override
+    public int encrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        int required = getEncryptedSize(in.remaining());
+        if (out.remaining() < required) {
+            throw new ShortBufferException("Output needs " + required + " bytes but only has " + out.remaining());
+        }
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        Cipher c = CipherCache.get(TRANSFORMATION);
+        c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+        int outPosition = out.position();
+        out.put(nonce);
+        try {
+            return NONCE_LENGTH + CipherCache.doFinal(c, in, out);
+        } catch (GeneralSecurityException e) {
+            out.position(outPosition);
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypts and verifies the remaining bytes of a buffer created by {@link #encrypt(ByteBuffer, ByteBuffer)}
+     * @param in the encrypted data
+     * @param out receives the decrypted data
+     * @return the amount of bytes written to out
+     * @throws AEADBadTagException if the key is wrong or the data was modified
+     * @throws GeneralSecurityException if decrypting fails
+     */
+    @Override
+    public int decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        if (in.remaining() < NONCE_LENGTH + TAG_LENGTH) {
+            throw new AEADBadTagException("Message is too short");
+        }
+        int inPosition = in.position();
+        byte[] nonce = new byte[NONCE_LENGTH];
+        in.get(nonce);
+        Cipher c = CipherCache.get(TRANSFORMATION);
+        c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+        try {
+            return CipherCache.doFinal(c, in, out);
+        } catch (GeneralSecurityException e) {
+            in.position(inPosition);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getEncryptedSize(int length) {
+        return NONCE_LENGTH + length + TAG_LENGTH;
+    }
+
+    @Override
+    public int getDecryptedSize(int length) {
+        return Math.max(0, length - NONCE_LENGTH - TAG_LENGTH);
+    }
+
+    /**
+     * Wraps a stream: everything written to the returned stream is encrypted and written to the given one.
+     * The returned stream has to be closed to write the final segment.
+     * @param out the stream that receives the encrypted data
+     * @return the stream which encrypts
+     * @throws IOException if the header cannot be written
+     */
+    public OutputStream encryptingStream(OutputStream out) throws IOException {
+        return new EncryptingOutputStream(out);
+    }
+
+    /**
+     * Wraps a stream: reading the returned stream decrypts and verifies the data read from the given one
+     * @param in the stream of encrypted data
+     * @return the stream which decrypts
+     * @throws IOException if the header cannot be read
+     */
+    public InputStream decryptingStream(InputStream in) throws IOException {
+        return new DecryptingInputStream(in);
+    }
+
+    /**
+     * Wraps a channel: everything written to the returned channel is encrypted and written to the given one.
+     * The returned channel has to be closed to write the final segment.
+     * @param out the channel that receives the encrypted data
+     * @return the channel which encrypts
+     * @throws IOException if the header cannot be written
+     */
+    public WritableByteChannel encryptingChannel(WritableByteChannel out) throws IOException {
+        return Channels.newChannel(encryptingStream(Channels.newOutputStream(out)));
+    }
+
+    /**
+     * Wraps a channel: reading the returned channel decrypts and verifies the data read from the given one
+     * @param in the channel of encrypted data
+     * @return the channel which decrypts
+     * @throws IOException if the header cannot be read
+     */
+    public ReadableByteChannel decryptingChannel(ReadableByteChannel in) throws IOException {
+        return Channels.newChannel(decryptingStream(Channels.newInputStream(in)));
+    }
+
+    /**
+     * Encrypts everything from one stream into another (neither stream is closed)
+     * @param in the plaintext
+     * @param out receives the encrypted data
+     * @return the amount of plaintext bytes
+     * @throws IOException if reading or writing fails
+     */
+    public long encrypt(InputStream in, OutputStream out) throws IOException {
+        EncryptingOutputStream encrypting = new EncryptingOutputStream(out);
+        long count = in.transferTo(encrypting);
+        encrypting.finish();
+        return count;
+    }
+
+    /**
+     * Decrypts everything from one stream into another (neither stream is closed)
+     * @param in the encrypted data
+     * @param out receives the plaintext
+     * @return the amount of plaintext bytes
+     * @throws IOException if reading or writing fails or the data was modified
+     */
+    public long decrypt(InputStream in, OutputStream out) throws IOException {
+        return new DecryptingInputStream(in).transferTo(out);
+    }
+
+    private Cipher createCipher() throws IOException {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IOException("AES-GCM is not available", e);
+        }
+    }
+
+    private void initSegment(Cipher cipher, int mode, byte[] nonce, int segment, boolean last) throws IOException {
+        ByteBuffer.wrap(nonce, PREFIX_LENGTH, NONCE_LENGTH - PREFIX_LENGTH).putInt(segment);
+        try {
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
+            throw new IOException("Invalid key", e);
+        }
+        cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+    }
+
+    private class EncryptingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final Cipher cipher = createCipher();
+        private final byte[] nonce = new byte[NONCE_LENGTH];
+        private final byte[] buffer = new byte[SEGMENT_SIZE];
+        private final byte[] sealed = new byte[SEGMENT_SIZE + TAG_LENGTH];
+        private int count = 0;
+        private int segment = 0;
+        private boolean finished = false;
+
+        private EncryptingOutputStream(OutputStream out) throws IOException {
+            this.out = out;
+            random.nextBytes(nonce);
+            out.write(nonce, 0, PREFIX_LENGTH);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                throw new IOException("Stream is closed");
+            }
+            while (len > 0) {
+                // a full segment is only written once more data arrives, because the last one has to be marked as final
+                if (count == SEGMENT_SIZE) {
+                    writeSegment(false);
+                }
+                int chunk = Math.min(len, SEGMENT_SIZE - count);
+                System.arraycopy(b, off, buffer, count, chunk);
+                count += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                finish();
+                out.close();
+            }
+        }
+
+        private void finish() throws IOException {
+            if (!finished) {
+                writeSegment(true);
+                out.flush();
+                finished = true;
+            }
+        }
+
+        private void writeSegment(boolean last) throws IOException {
+            initSegment(cipher, Cipher.ENCRYPT_MODE, nonce, segment++, last);
+            int length;
+            try {
+                length = cipher.doFinal(buffer, 0, count, sealed, 0);
+            } catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+                throw new IOException("Error encrypting", e);
+            }
+            out.write(new byte[]{
+                    (byte) ((length >>> 24) | (last ? 0x80 : 0)), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length
+            });
+            out.write(sealed, 0, length);
+            count = 0;
+        }
+    }
+
+    private class DecryptingInputStream extends InputStream {
+        private final DataInputStream in;
+        private final Cipher cipher = createCipher();
+        private final byte[] nonce = new byte[NONCE_LENGTH];
+        private final byte[] sealed = new byte[SEGMENT_SIZE + TAG_LENGTH];
+        private final byte[] buffer = new byte[SEGMENT_SIZE];
+        private int position = 0;
+        private int count = 0;
+        private int segment = 0;
+        private boolean last = false;
+
+        private DecryptingInputStream(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            this.in.readFully(nonce, 0, PREFIX_LENGTH);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int chunk = Math.min(len, count - position);
+            System.arraycopy(buffer, position, b, off, chunk);
+            position += chunk;
+            return chunk;
+        }
+
+        @Override
+        public int available() {
+            return count - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        /**
+         * Decrypts segments until there is plaintext available
+         * @return false at the end of the stream
+         */
+        private boolean fill() throws IOException {
+            while (position == count) {
+                if (last) {
+                    if (in.read() != -1) {
+                        throw new IOException("Unexpected data after the final segment");
+                    }
+                    return false;
+                }
+                readSegment();
+            }
+            return true;
+        }
+
+        private void readSegment() throws IOException {
+            int header;
+            try {
+                header = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("Encrypted stream was truncated", e);
+            }
+            last = (header & FINAL_SEGMENT) != 0;
+            int length = header & ~FINAL_SEGMENT;
+            if (length < TAG_LENGTH || length > sealed.length) {
+                throw new IOException("Invalid segment length: " + length);
+            }
+            in.readFully(sealed, 0, length);
+            initSegment(cipher, Cipher.DECRYPT_MODE, nonce, segment++, last);
+            try {
+                count = cipher.doFinal(sealed, 0, length, buffer, 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Encrypted stream was modified or the key is wrong", e);
+            } catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+                throw new IOException("Error decrypting", e);
+            }
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.jmb19905.util.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * HMAC-SHA256 based key derivation (HKDF, RFC 5869)
+ */
+final class Hkdf {
+
+    private static final String MAC = "HmacSHA256";
+    private static final int HASH_LENGTH = 32;
+
+    private Hkdf() {}
+
+    /**
+     * Condenses input key material (e.g. an ECDH secret) into a pseudorandom key
+     * @param salt a non-secret random value, may be empty
+     * @param inputKeyMaterial the secret
+     * @return the pseudorandom key
+     */
+    static byte[] extract(byte[] salt, byte[] inputKeyMaterial) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC);
+        mac.init(new SecretKeySpec(salt.length == 0 ? new byte[HASH_LENGTH] : salt, MAC));
+        return mac.doFinal(inputKeyMaterial);
+    }
+
+    /**
+     * Derives a key from a pseudorandom key
+     * @param pseudoRandomKey the result of {@link #extract(byte[], byte[])}
+     * @param info what the key is used for, different infos give independent keys
+     * @param length the length of the key in bytes
+     * @return the key
+     */
+    static byte[] expand(byte[] pseudoRandomKey, byte[] info, int length) throws GeneralSecurityException {
+        if (length > 255 * HASH_LENGTH) {
+            throw new IllegalArgumentException("Cannot derive more than " + 255 * HASH_LENGTH + " bytes");
+        }
+        Mac mac = Mac.getInstance(MAC);
+        mac.init(new SecretKeySpec(pseudoRandomKey, MAC));
+        byte[] out = new byte[length];
+        byte[] block = new byte[0];
+        for (int i = 1, position = 0; position < length; i++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) i);
+            block = mac.doFinal();
+            int chunk = Math.min(HASH_LENGTH, length - position);
+            System.arraycopy(block, 0, out, position, chunk);
+            position += chunk;
+        }
+        return out;
+    }
+
+}
@@ -1,5 +1,9 @@
 package net.jmb19905.util.crypto;
 
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
 /**
  * Interface for implementing different encryption algorithms
  */
@@ -15,8 +19,79 @@ public interface IEncryption {
     /**
      * Decrypts a byte array
      * @param in the encrypted data
-     * @return the decrypted data
+     * @return the decrypted data, authenticated encryptions return null if the data cannot be verified
      */
     byte[] decrypt(byte[] in);
 
-}
\ No newline at end of file
+    /**
+     * Provides how the byte array methods encode their output
+     * @return the encoding, Base64 unless the implementation says otherwise
+     */
+    default OutputEncoding getEncoding() {
+        return OutputEncoding.BASE64;
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer into another buffer (heap or direct) without creating intermediate arrays.
+     * The implementations in this package write the binary ciphertext without the text encoding of {@link #encrypt(byte[])},
+     * so the output is meant for {@link #decrypt(ByteBuffer, ByteBuffer)}. The default implementation copies the data and uses the byte array methods.
+     * On success the position of in is at its limit and out is advanced by the returned amount, on failure neither position changes.
+     * @param in the input data
+     * @param out receives the encrypted data, use {@link #getEncryptedSize(int)} to size it
+     * @return the amount of bytes written to out
+     * @throws ShortBufferException if out has not enough space left
+     * @throws GeneralSecurityException if encrypting fails
+     */
+    default int encrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        byte[] data = new byte[in.remaining()];
+        in.duplicate().get(data);
+        return transfer(encrypt(data), in, out);
+    }
+
+    /**
+     * Decrypts the remaining bytes of a buffer created by {@link #encrypt(ByteBuffer, ByteBuffer)} into another buffer (heap or direct).
+     * On success the position of in is at its limit and out is advanced by the returned amount, on failure neither position changes.
+     * @param in the encrypted data
+     * @param out receives the decrypted data, use {@link #getDecryptedSize(int)} to size it
+     * @return the amount of bytes written to out
+     * @throws ShortBufferException if out has not enough space left
+     * @throws GeneralSecurityException if decrypting fails (e.g. wrong key)
+     */
+    default int decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        byte[] data = new byte[in.remaining()];
+        in.duplicate().get(data);
+        byte[] result = decrypt(data);
+        if (result == null) {
+            throw new GeneralSecurityException("Error decrypting");
+        }
+        return transfer(result, in, out);
+    }
+
+    /**
+     * Provides the space {@link #encrypt(ByteBuffer, ByteBuffer)} needs at most for some data
+     * @param length the amount of bytes to encrypt
+     * @return the maximum size of the encrypted data or -1 if it is not known in advance
+     */
+    default int getEncryptedSize(int length) {
+        return -1;
+    }
+
+    /**
+     * Provides the space {@link #decrypt(ByteBuffer, ByteBuffer)} needs at most for some data
+     * @param length the amount of encrypted bytes
+     * @return the maximum size of the decrypted data or -1 if it is not known in advance
+     */
+    default int getDecryptedSize(int length) {
+        return -1;
+    }
+
+    private static int transfer(byte[] result, ByteBuffer in, ByteBuffer out) throws ShortBufferException {
+        if (out.remaining() < result.length) {
+            throw new ShortBufferException("Output needs " + result.length + " bytes but only has " + out.remaining());
+        }
+        out.put(result);
+        in.position(in.limit());
+        return result.length;
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.jmb19905.util.crypto;
+
+import net.jmb19905.util.Logger;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Generates the EC key pairs for new Encryptions in advance on a background thread, so setting up a connection doesn't wait for the key generation.
+ * If the pool runs empty the key pair is generated on the calling thread.
+ */
+public class KeyPairPool implements AutoCloseable {
+
+    private final BlockingQueue<KeyPair> keyPairs;
+    private final Thread generator;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a KeyPairPool and starts filling it
+     * @param capacity the amount of key pairs to keep ready
+     */
+    public KeyPairPool(int capacity) {
+        keyPairs = new ArrayBlockingQueue<>(capacity);
+        generator = new Thread(this::generate, "Encryption-KeyPairs");
+        generator.setDaemon(true);
+        generator.start();
+    }
+
+    /**
+     * Provides a new key pair, a pregenerated one if available
+     * @return the key pair
+     * @throws NoSuchAlgorithmException if EC is not supported
+     */
+    public KeyPair take() throws NoSuchAlgorithmException {
+        KeyPair keyPair = keyPairs.poll();
+        if (keyPair == null) {
+            keyPair = Encryption.createKeyPairGenerator().generateKeyPair();
+        }
+        return keyPair;
+    }
+
+    /**
+     * @return the amount of key pairs that are ready
+     */
+    public int available() {
+        return keyPairs.size();
+    }
+
+    /**
+     * Stops generating key pairs
+     */
+    @Override
+    public void close() {
+        closed = true;
+        generator.interrupt();
+        keyPairs.clear();
+    }
+
+    private void generate() {
+        try {
+            KeyPairGenerator kpg = Encryption.createKeyPairGenerator();
+            while (!closed) {
+                keyPairs.put(kpg.generateKeyPair());
+            }
+        } catch (InterruptedException ignored) {
+            // closed
+        } catch (NoSuchAlgorithmException e) {
+            Logger.error(e, "Cannot pregenerate key pairs");
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package net.jmb19905.util.crypto;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * How the byte array methods of an IEncryption encode their ciphertext
+ */
+public enum OutputEncoding {
+
+    /**
+     * The binary ciphertext - for binary transports, it is a third smaller than Base64
+     */
+    RAW {
+        @Override
+        byte[] encode(Cipher cipher, byte[] prefix, byte[] in) throws IllegalBlockSizeException, BadPaddingException {
+            byte[] out = new byte[prefix.length + cipher.getOutputSize(in.length)];
+            System.arraycopy(prefix, 0, out, 0, prefix.length);
+            int length = prefix.length + doFinal(cipher, in, out, prefix.length);
+            return length == out.length ? out : Arrays.copyOf(out, length);
+        }
+
+        @Override
+        ByteBuffer decode(byte[] in) {
+            return ByteBuffer.wrap(in);
+        }
+    },
+
+    /**
+     * The ciphertext as Base64 without padding, which is safe to put into text (the default)
+     */
+    BASE64 {
+        @Override
+        byte[] encode(Cipher cipher, byte[] prefix, byte[] in) throws IllegalBlockSizeException, BadPaddingException {
+            byte[] sealed = CipherCache.scratch(prefix.length + cipher.getOutputSize(in.length));
+            System.arraycopy(prefix, 0, sealed, 0, prefix.length);
+            int length = prefix.length + doFinal(cipher, in, sealed, prefix.length);
+            // the encoder presizes its output exactly, so this is the only array that is allocated
+            ByteBuffer encoded = ENCODER.encode(ByteBuffer.wrap(sealed, 0, length));
+            byte[] out = encoded.array();
+            return out.length == encoded.remaining() ? out : Arrays.copyOf(out, encoded.remaining());
+        }
+
+        @Override
+        ByteBuffer decode(byte[] in) {
+            byte[] decoded = CipherCache.scratch(in.length / 4 * 3 + 2);
+            return ByteBuffer.wrap(decoded, 0, DECODER.decode(in, decoded));
+        }
+    };
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    /**
+     * Encrypts the input with an initialized Cipher and encodes the prefix followed by the ciphertext
+     * @param cipher the initialized Cipher
+     * @param prefix bytes to put in front of the ciphertext (e.g. a nonce)
+     * @param in the input data
+     * @return the encoded data
+     */
+    abstract byte[] encode(Cipher cipher, byte[] prefix, byte[] in) throws IllegalBlockSizeException, BadPaddingException;
+
+    /**
+     * Decodes data created by {@link #encode(Cipher, byte[], byte[])}.
+     * The returned buffer may be backed by this thread's scratch array, so it has to be used before encoding or decoding again.
+     * @param in the encoded data
+     * @return a heap buffer with the prefix and ciphertext
+     * @throws IllegalArgumentException if the data is not encoded correctly
+     */
+    abstract ByteBuffer decode(byte[] in);
+
+    private static int doFinal(Cipher cipher, byte[] in, byte[] out, int offset) throws IllegalBlockSizeException, BadPaddingException {
+        try {
+            return cipher.doFinal(in, 0, in.length, out, offset);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("The output was sized by the Cipher", e);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package net.jmb19905.util.crypto;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the Shared Keys that key agreements produced, so a peer that connects again with the same keys doesn't need another ECDH agreement.
+ * A Shared Key depends on both sides, so entries are identified by the fingerprints of the peer's PublicKey and our own.
+ * The cache holds a limited amount of entries (the least recently used one is evicted) and entries expire after a maximum age.
+ */
+public class SessionCache {
+
+    private final int capacity;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<String, Session> sessions;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a SessionCache
+     * @param capacity the maximum amount of Shared Keys
+     * @param maxAge how long a Shared Key may be reused
+     */
+    public SessionCache(int capacity, Duration maxAge) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity has to be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > SessionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Provides the Shared Key the two keys agreed on
+     * @param ownKey our PublicKey
+     * @param peerKey the PublicKey of the other side
+     * @return a copy of the Shared Key or null if it is not cached (anymore)
+     */
+    public byte[] get(PublicKey ownKey, PublicKey peerKey) {
+        String id = id(ownKey, peerKey);
+        synchronized (sessions) {
+            Session session = sessions.get(id);
+            if (session != null && System.nanoTime() - session.created > maxAgeNanos) {
+                sessions.remove(id);
+                session = null;
+            }
+            if (session == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return session.secret.clone();
+        }
+    }
+
+    /**
+     * Stores the Shared Key the two keys agreed on
+     * @param ownKey our PublicKey
+     * @param peerKey the PublicKey of the other side
+     * @param sharedSecret the Shared Key
+     */
+    public void put(PublicKey ownKey, PublicKey peerKey, byte[] sharedSecret) {
+        Session session = new Session(sharedSecret.clone(), System.nanoTime());
+        String id = id(ownKey, peerKey);
+        synchronized (sessions) {
+            sessions.put(id, session);
+        }
+    }
+
+    /**
+     * Removes the Shared Key of two keys
+     * @param ownKey our PublicKey
+     * @param peerKey the PublicKey of the other side
+     */
+    public void invalidate(PublicKey ownKey, PublicKey peerKey) {
+        String id = id(ownKey, peerKey);
+        synchronized (sessions) {
+            sessions.remove(id);
+        }
+    }
+
+    /**
+     * Removes all Shared Keys
+     */
+    public void clear() {
+        synchronized (sessions) {
+            sessions.clear();
+        }
+    }
+
+    /**
+     * @return the amount of cached Shared Keys
+     */
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * @return how often a Shared Key was found
+     */
+    public long getHits() {
+        synchronized (sessions) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return how often no Shared Key was found
+     */
+    public long getMisses() {
+        synchronized (sessions) {
+            return misses;
+        }
+    }
+
+    private static String id(PublicKey ownKey, PublicKey peerKey) {
+        return EncryptionUtility.fingerprint(peerKey) + ':' + EncryptionUtility.fingerprint(ownKey);
+    }
+
+    private static final class Session {
+        private final byte[] secret;
+        private final long created;
+
+        private Session(byte[] secret, long created) {
+            this.secret = secret;
+            this.created = created;
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+package net.jmb19905.util.crypto;
+
+import net.jmb19905.util.Logger;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * AES-GCM encryption for a long-lived connection based on a Shared Key from a key agreement.
+ * <p>
+ * Instead of using the Shared Key directly, separate keys for sending and receiving are derived with HKDF
+ * (which side sends with which key is decided by comparing both PublicKeys, so both sides agree without talking).
+ * The send key is replaced after a certain amount of bytes or time: every message starts with the number of the key (its epoch),
+ * so the receiver derives the matching key on its own. Rekeying only costs a derivation, no new key agreement,
+ * and it never blocks: encrypting threads swap in the new key with a compare-and-set.
+ * The receiver accepts the previous, the current and the next epoch, and only moves to the next one once a message of it was verified.
+ * <p>
+ * Each message is the 4 byte epoch, the 12 byte nonce and the ciphertext with the tag, in the chosen encoding.
+ */
+public class SessionEncryption implements IEncryption {
+
+    /**
+     * The default amount of bytes after which the send key is replaced
+     */
+    public static final long DEFAULT_REKEY_BYTES = 1L << 30;
+    /**
+     * The default time after which the send key is replaced
+     */
+    public static final Duration DEFAULT_REKEY_INTERVAL = Duration.ofHours(1);
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int EPOCH_LENGTH = 4;
+    private static final int NONCE_LENGTH = 12;
+    private static final int HEADER_LENGTH = EPOCH_LENGTH + NONCE_LENGTH;
+    private static final int TAG_LENGTH = 16;
+    private static final int KEY_LENGTH = 32;
+    /**
+     * Random nonces must not be used for much more than 2^32 messages with one key
+     */
+    private static final long MAX_MESSAGES = 1L << 30;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final byte[] pseudoRandomKey;
+    private final byte[] sendLabel;
+    private final byte[] receiveLabel;
+    private final long rekeyBytes;
+    private final long rekeyNanos;
+    private final OutputEncoding encoding;
+
+    private final AtomicReference<KeyState> send = new AtomicReference<>();
+    private final AtomicReference<KeyState> receive = new AtomicReference<>();
+
+    /**
+     * Creates a SessionEncryption with the default rekey limits which encodes its messages with Base64
+     * @param sharedSecret the Shared Key both sides agreed on
+     * @param ownKey our PublicKey
+     * @param peerKey the PublicKey of the other side
+     * @throws GeneralSecurityException if the keys cannot be derived
+     */
+    public SessionEncryption(byte[] sharedSecret, PublicKey ownKey, PublicKey peerKey) throws GeneralSecurityException {
+        this(sharedSecret, ownKey, peerKey, DEFAULT_REKEY_BYTES, DEFAULT_REKEY_INTERVAL, OutputEncoding.BASE64);
+    }
+
+    /**
+     * Creates a SessionEncryption
+     * @param sharedSecret the Shared Key both sides agreed on
+     * @param ownKey our PublicKey
+     * @param peerKey the PublicKey of the other side
+     * @param rekeyBytes after how many encrypted bytes the send key is replaced
+     * @param rekeyInterval after how much time the send key is replaced
+     * @param encoding how the byte array methods encode the messages
+     * @throws GeneralSecurityException if the keys cannot be derived
+     */
+    public SessionEncryption(byte[] sharedSecret, PublicKey ownKey, PublicKey peerKey, long rekeyBytes, Duration rekeyInterval, OutputEncoding encoding) throws GeneralSecurityException {
+        byte[] own = ownKey.getEncoded();
+        byte[] peer = peerKey.getEncoded();
+        int order = Arrays.compare(own, peer);
+        if (order == 0) {
+            throw new IllegalArgumentException("Both sides have the same PublicKey");
+        }
+        byte[] first = order < 0 ? own : peer;
+        byte[] second = order < 0 ? peer : own;
+        byte[] salt = new byte[first.length + second.length];
+        System.arraycopy(first, 0, salt, 0, first.length);
+        System.arraycopy(second, 0, salt, first.length, second.length);
+
+        this.pseudoRandomKey = Hkdf.extract(salt, sharedSecret);
+        this.sendLabel = (order < 0 ? "jmb session 1>2 " : "jmb session 2>1 ").getBytes(StandardCharsets.US_ASCII);
+        this.receiveLabel = (order < 0 ? "jmb session 2>1 " : "jmb session 1>2 ").getBytes(StandardCharsets.US_ASCII);
+        this.rekeyBytes = rekeyBytes;
+        this.rekeyNanos = rekeyInterval.toNanos();
+        this.encoding = encoding;
+        send.set(derive(sendLabel, 0));
+        receive.set(derive(receiveLabel, 0));
+    }
+
+    @Override
+    public byte[] encrypt(byte[] in) {
+        try {
+            KeyState state = sendState(in.length);
+            Cipher c = CipherCache.get(TRANSFORMATION);
+            byte[] header = header(state.epoch);
+            c.init(Cipher.ENCRYPT_MODE, state.key, new GCMParameterSpec(TAG_LENGTH * 8, header, EPOCH_LENGTH, NONCE_LENGTH));
+            c.updateAAD(header, 0, EPOCH_LENGTH);
+            return encoding.encode(c, header, in);
+        } catch (GeneralSecurityException e) {
+            Logger.log(e, "Error encrypting", Logger.Level.ERROR);
+        }
+        return in;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] in) {
+        try {
+            ByteBuffer decoded = encoding.decode(in);
+            if (decoded.remaining() < HEADER_LENGTH + TAG_LENGTH) {
+                throw new IllegalArgumentException("Message is too short");
+            }
+            byte[] array = decoded.array();
+            int offset = decoded.arrayOffset() + decoded.position();
+            KeyState current = receive.get();
+            KeyState state = receiveState(current, array, offset);
+            byte[] decrypted = initDecrypt(state, array, offset).doFinal(array, offset + HEADER_LENGTH, decoded.remaining() - HEADER_LENGTH);
+            advance(current, state);
+            return decrypted;
+        } catch (AEADBadTagException e) {
+            Logger.error(e, "Error decrypting - wrong key or modified message");
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            Logger.error(e, "Error decrypting");
+        }
+        return null;
+    }
+
+    @Override
+    public OutputEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Encrypts the remaining bytes of a buffer: the epoch, nonce, ciphertext and tag are written to out (without Base64)
+     * @param in the input data
+     * @param out receives the encrypted data
+     * @return the amount of bytes written to out
+     * @throws GeneralSecurityException if encrypting fails
+     */
+    @Override
+    public int encrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        int required = getEncryptedSize(in.remaining());
+        if (out.remaining() < required) {
+            throw new ShortBufferException("Output needs " + required + " bytes but only has " + out.remaining());
+        }
+        KeyState state = sendState(in.remaining());
+        Cipher c = CipherCache.get(TRANSFORMATION);
+        byte[] header = header(state.epoch);
+        c.init(Cipher.ENCRYPT_MODE, state.key, new GCMParameterSpec(TAG_LENGTH * 8, header, EPOCH_LENGTH, NONCE_LENGTH));
+        c.updateAAD(header, 0, EPOCH_LENGTH);
+        int outPosition = out.position();
+        out.put(header);
+        try {
+            return HEADER_LENGTH + CipherCache.doFinal(c, in, out);
+        } catch (GeneralSecurityException e) {
+            out.position(outPosition);
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypts and verifies the remaining bytes of a buffer created by {@link #encrypt(ByteBuffer, ByteBuffer)} of the other side
+     * @param in the encrypted data
+     * @param out receives the decrypted data
+     * @return the amount of bytes written to out
+     * @throws AEADBadTagException if the key is wrong or the data was modified
+     * @throws GeneralSecurityException if decrypting fails
+     */
+    @Override
+    public int decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        if (in.remaining() < HEADER_LENGTH + TAG_LENGTH) {
+            throw new AEADBadTagException("Message is too short");
+        }
+        int inPosition = in.position();
+        byte[] header = new byte[HEADER_LENGTH];
+        in.get(header);
+        try {
+            KeyState current = receive.get();
+            KeyState state = receiveState(current, header, 0);
+            int written = CipherCache.doFinal(initDecrypt(state, header, 0), in, out);
+            advance(current, state);
+            return written;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            in.position(inPosition);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getEncryptedSize(int length) {
+        return HEADER_LENGTH + length + TAG_LENGTH;
+    }
+
+    @Override
+    public int getDecryptedSize(int length) {
+        return Math.max(0, length - HEADER_LENGTH - TAG_LENGTH);
+    }
+
+    /**
+     * @return the number of the current send key, it grows with every rekey
+     */
+    public int getSendEpoch() {
+        return send.get().epoch;
+    }
+
+    /**
+     * Replaces the send key now, e.g. after a suspected compromise.
+     * The other side can only follow one epoch at a time, so a message should be sent before rekeying again.
+     * @throws GeneralSecurityException if the key cannot be derived
+     */
+    public void rekey() throws GeneralSecurityException {
+        KeyState current = send.get();
+        send.compareAndSet(current, derive(sendLabel, current.epoch + 1));
+    }
+
+    /**
+     * Provides the send key for a message, replacing it first if it is used up
+     */
+    private KeyState sendState(int length) throws GeneralSecurityException {
+        KeyState state = send.get();
+        if (state.bytes.get() >= rekeyBytes || state.messages.get() >= MAX_MESSAGES || System.nanoTime() - state.created >= rekeyNanos) {
+            KeyState next = derive(sendLabel, state.epoch + 1);
+            // whoever loses the race simply uses the key the winner installed
+            state = send.compareAndSet(state, next) ? next : send.get();
+        }
+        state.bytes.addAndGet(length);
+        state.messages.incrementAndGet();
+        return state;
+    }
+
+    /**
+     * Selects the receive key of a message. Only the current epoch, the previous one (messages may still be on the way)
+     * and the next one are accepted, the epoch isn't verified before the message is.
+     * @param current the current receive state
+     * @return the state of the epoch, a new one for the next epoch that is only installed by {@link #advance(KeyState, KeyState)}
+     */
+    private KeyState receiveState(KeyState current, byte[] header, int offset) throws GeneralSecurityException {
+        int epoch = ByteBuffer.wrap(header, offset, EPOCH_LENGTH).getInt();
+        if (epoch == current.epoch) {
+            return current;
+        }
+        if (epoch == current.epoch - 1 && current.previous != null) {
+            return current.previous;
+        }
+        if (epoch == current.epoch + 1 && epoch > 0) {
+            return derive(receiveLabel, epoch, new KeyState(current.epoch, current.key, null));
+        }
+        throw new AEADBadTagException("Unexpected epoch " + epoch + ", the current one is " + current.epoch);
+    }
+
+    /**
+     * Installs the receive state of the next epoch once a message of it was verified
+     */
+    private void advance(KeyState current, KeyState state) {
+        if (state.epoch > current.epoch) {
+            // if another message of the epoch won the race it installed the same key
+            receive.compareAndSet(current, state);
+        }
+    }
+
+    private static Cipher initDecrypt(KeyState state, byte[] header, int offset) throws GeneralSecurityException {
+        Cipher c = CipherCache.get(TRANSFORMATION);
+        c.init(Cipher.DECRYPT_MODE, state.key, new GCMParameterSpec(TAG_LENGTH * 8, header, offset + EPOCH_LENGTH, NONCE_LENGTH));
+        c.updateAAD(header, offset, EPOCH_LENGTH);
+        return c;
+    }
+
+    private KeyState derive(byte[] label, int epoch) throws GeneralSecurityException {
+        return derive(label, epoch, null);
+    }
+
+    private KeyState derive(byte[] label, int epoch, KeyState previous) throws GeneralSecurityException {
+        if (epoch < 0) {
+            throw new IllegalStateException("All epochs are used up");
+        }
+        byte[] info = Arrays.copyOf(label, label.length + EPOCH_LENGTH);
+        ByteBuffer.wrap(info, label.length, EPOCH_LENGTH).putInt(epoch);
+        SecretKey key = new SecretKeySpec(Hkdf.expand(pseudoRandomKey, info, KEY_LENGTH), "AES");
+        return new KeyState(epoch, key, previous);
+    }
+
+    private static byte[] header(int epoch) {
+        byte[] header = new byte[HEADER_LENGTH];
+        random.nextBytes(header);
+        ByteBuffer.wrap(header).putInt(epoch);
+        return header;
+    }
+
+    private static final class KeyState {
+        private final int epoch;
+        private final SecretKey key;
+        /**
+         * The receive state of the epoch before, null if there is none
+         */
+        private final KeyState previous;
+        private final long created = System.nanoTime();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong messages = new AtomicLong();
+
+        private KeyState(int epoch, SecretKey key, KeyState previous) {
+            this.epoch = epoch;
+            this.key = key;
+            this.previous = previous;
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * A simple Messenger written in Java
+ * Copyright (C) 2020-2022  Jared M. Bennett
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.jmb19905.util.events;
+
+import net.jmb19905.util.Logger;
+import net.jmb19905.util.NamedLogger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An EventHandler that delivers Events on an Executor instead of the thread that performs them, so a slow listener doesn't hold up the producer.
+ * <p>
+ * Deliveries go through serial lanes: a lane runs one delivery at a time, in the order the Events were performed.
+ * Without fan-out all listeners share one lane and are called one after another, like {@link EventHandler} does.
+ * With parallel fan-out every listener has its own lane, so listeners run concurrently but each one still sees the Events in order.
+ * Priorities and cancelling only take effect without fan-out. Filters are checked on the performing thread before a delivery is queued
+ * with fan-out, and on the lane right before each listener is called without it.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class AsyncEventHandler<C extends EventContext<?>> extends EventHandler<C> {
+
+    private static final NamedLogger LOGGER = Logger.get("events");
+    /**
+     * How many deliveries a lane runs before it gives its thread back to the Executor
+     */
+    private static final int LANE_BATCH = 64;
+
+    private final Executor executor;
+    private final boolean parallel;
+    private final Lane sharedLane = new Lane();
+    private final Map<EventListener, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an AsyncEventHandler
+     * @param id the id of the handler
+     * @param executor delivers the Events, e.g. a thread pool
+     * @param parallel if the listeners of an Event run concurrently (each listener still receives the Events in order)
+     */
+    public AsyncEventHandler(String id, Executor executor, boolean parallel) {
+        super(id);
+        this.executor = executor;
+        this.parallel = parallel;
+    }
+
+    @Override
+    public boolean removeEventListener(EventListener listener) {
+        boolean removed = super.removeEventListener(listener);
+        if (removed) {
+            lanes.remove(listener);
+        }
+        return removed;
+    }
+
+    @Override
+    public <E extends Event<C>> boolean removeEventListener(Class<E> type, EventListener<? super E> listener) {
+        boolean removed = super.removeEventListener(type, listener);
+        if (removed) {
+            lanes.remove(listener);
+        }
+        return removed;
+    }
+
+    /**
+     * Queues an Event for its listeners and returns immediately
+     * @param evt the Event
+     */
+    @Override
+    public <E extends Event> void performEvent(E evt) {
+        performEventAsync(evt);
+    }
+
+    /**
+     * Queues an Event for its listeners
+     * @param evt the Event
+     * @return a future that completes once all listeners handled the Event, exceptionally if one of them failed
+     */
+    public <E extends Event> CompletableFuture<Void> performEventAsync(E evt) {
+        if (!isValid()) {
+            LOGGER.warn("Event Handler is not valid");
+            return CompletableFuture.completedFuture(null);
+        }
+        queueForBatch(evt);
+        EventListenerList.Snapshot listeners = listenersFor(evt);
+        if (listeners.size() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!parallel) {
+            Delivery delivery = new Delivery(listeners, evt);
+            sharedLane.submit(delivery);
+            return delivery.future;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[listeners.size()];
+        int count = 0;
+        for (int i = 0; i < listeners.size(); i++) {
+            // filtered out listeners don't even get a delivery
+            if (listeners.accepts(i, evt)) {
+                Delivery delivery = new Delivery(EventListenerList.Snapshot.of(listeners.get(i)), evt);
+                lane(listeners.get(i)).submit(delivery);
+                futures[count++] = delivery.future;
+            }
+        }
+        return count == 1 ? (CompletableFuture<Void>) futures[0] : CompletableFuture.allOf(Arrays.copyOf(futures, count));
+    }
+
+    private Lane lane(EventListener<?> listener) {
+        return lanes.computeIfAbsent(listener, key -> new Lane());
+    }
+
+    /**
+     * One Event for one or more listeners
+     */
+    private static final class Delivery {
+        private final EventListenerList.Snapshot listeners;
+        private final Event evt;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Delivery(EventListenerList.Snapshot listeners, Event evt) {
+            this.listeners = listeners;
+            this.evt = evt;
+        }
+
+        private void run() {
+            // the other listeners still get the Event if one fails
+            Throwable failure = listeners.performIsolated(evt);
+            if (failure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Runs its deliveries one at a time on the Executor
+     */
+    private final class Lane implements Runnable {
+        private final Queue<Delivery> deliveries = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void submit(Delivery delivery) {
+            deliveries.add(delivery);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    Delivery delivery;
+                    while ((delivery = deliveries.poll()) != null) {
+                        delivery.future.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Delivery delivery;
+            for (int i = 0; i < LANE_BATCH && (delivery = deliveries.poll()) != null; i++) {
+                delivery.run();
+            }
+            scheduled.set(false);
+            // a delivery may have been queued after the last poll but before the flag was cleared
+            if (!deliveries.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * A simple Messenger written in Java
+ * Copyright (C) 2020-2022  Jared M. Bennett
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.jmb19905.util.events;
+
+import java.util.List;
+
+/**
+ * A listener that receives the Events of one id collected since the last {@link EventHandler#tick()} as one list,
+ * instead of being called for every single Event
+ * @param <E> the type of Event
+ */
+public interface BatchEventListener<E extends Event<? extends EventContext<?>>> extends java.util.EventListener {
+    /**
+     * Handles the Events since the last tick
+     * @param events the Events in the order they were performed (possibly coalesced), the list cannot be modified
+     */
+    void perform(List<E> events);
+    String getId();
+}
@@ -0,0 +1,48 @@
+/*
+ * A simple Messenger written in Java
+ * Copyright (C) 2020-2022  Jared M. Bennett
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.jmb19905.util.events;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An Event that listeners can cancel to stop it from reaching the remaining (lower priority) listeners
+ * @param <EC> the context in which the Event took place
+ */
+public abstract class CancellableEvent<EC extends EventContext<?>> extends Event<EC> implements Cancellable {
+    private volatile boolean cancelled = false;
+
+    /**
+     * Creates a CancellableEvent instance
+     * @param ctx the context of the Event
+     * @param id the string id of the event
+     */
+    public CancellableEvent(@NotNull EC ctx, String id) {
+        super(ctx, id);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * A simple Messenger written in Java
+ * Copyright (C) 2020-2022  Jared M. Bennett
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.jmb19905.util.events;
+
+/**
+ * Merges Events of the same id and source that are waiting for the next tick, so batch listeners only receive one Event per source
+ * @param <E> the type of Event
+ */
+@FunctionalInterface
+public interface CoalescingPolicy<E extends Event<? extends EventContext<?>>> {
+
+    /**
+     * Merges a new Event into the one that is already waiting
+     * @param pending the waiting Event
+     * @param next the new Event
+     * @return the Event that waits from now on
+     */
+    E merge(E pending, E next);
+
+    /**
+     * @return a policy that only keeps the newest Event of each source
+     */
+    static <E extends Event<? extends EventContext<?>>> CoalescingPolicy<E> keepLatest() {
+        return (pending, next) -> next;
+    }
+
+}
@@ -30,6 +30,10 @@ import java.util.EventObject;
 public abstract class Event<EC extends EventContext<?>> extends EventObject {
     private final EC ctx;
     private final String id;
+    /**
+     * If the Event can be cancelled - checked once here instead of on every dispatch
+     */
+    final boolean cancellable = this instanceof Cancellable;
 
     /**
      * Creates an Event instance
@@ -0,0 +1,139 @@
+/*
+ * A simple Messenger written in Java
+ * Copyright (C) 2020-2022  Jared M. Bennett
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.jmb19905.util.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The batch listeners of one event id and the Events waiting for the next tick
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class EventBatch {
+
+    private static final BatchEventListener<?>[] EMPTY = new BatchEventListener<?>[0];
+
+    private volatile BatchEventListener<?>[] listeners = EMPTY;
+    private CoalescingPolicy policy;
+    private List<Event> pending = new ArrayList<>();
+    /**
+     * When the oldest waiting Event was added
+     */
+    private long firstPendingNanos;
+    /**
+     * The waiting Events by source when there is a CoalescingPolicy, in the order the sources first appeared
+     */
+    private Map<Object, Event> coalesced = new LinkedHashMap<>();
+    /**
+     * Held while the Events are taken and passed to the listeners
+     */
+    private final ReentrantLock delivering = new ReentrantLock();
+
+    synchronized void addListener(BatchEventListener<?> listener) {
+        BatchEventListener<?>[] current = listeners;
+        BatchEventListener<?>[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    synchronized boolean removeListener(BatchEventListener<?> listener) {
+        BatchEventListener<?>[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                BatchEventListener<?>[] updated = new BatchEventListener<?>[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void setPolicy(CoalescingPolicy<?> policy) {
+        // events that are already waiting keep their place
+        if (this.policy != null && policy == null) {
+            pending.addAll(coalesced.values());
+            coalesced.clear();
+        }
+        this.policy = policy;
+    }
+
+    boolean hasListeners() {
+        return listeners.length > 0;
+    }
+
+    /**
+     * Keeps an Event until the next delivery
+     * @param evt the Event
+     * @param maxPending how many Events may wait
+     * @param maxDelayNanos how long the oldest Event may wait
+     * @return if one of the limits is reached and the Events should be delivered now
+     */
+    synchronized boolean add(Event evt, int maxPending, long maxDelayNanos) {
+        long now = System.nanoTime();
+        if (pending.isEmpty() && coalesced.isEmpty()) {
+            firstPendingNanos = now;
+        }
+        if (policy == null) {
+            pending.add(evt);
+        } else {
+            coalesced.merge(evt.getSource(), evt, policy::merge);
+        }
+        return pending.size() + coalesced.size() >= maxPending || now - firstPendingNanos >= maxDelayNanos;
+    }
+
+    /**
+     * Delivers the waiting Events to the listeners. Deliveries from different threads (a tick and a producer that reached a limit)
+     * run one after another, so a listener never gets two batches at once or out of order.
+     */
+    void deliver() {
+        if (delivering.isHeldByCurrentThread()) {
+            // a listener performed an Event that reached a limit - it is delivered with the next batch instead of in between
+            return;
+        }
+        delivering.lock();
+        try {
+            List<Event> events;
+            synchronized (this) {
+                if (pending.isEmpty() && coalesced.isEmpty()) {
+                    return;
+                }
+                events = pending;
+                if (!coalesced.isEmpty()) {
+                    events.addAll(coalesced.values());
+                    coalesced = new LinkedHashMap<>();
+                }
+                pending = new ArrayList<>();
+            }
+            List<Event> view = Collections.unmodifiableList(events);
+            for (BatchEventListener listener : listeners) {
+                listener.perform(view);
+            }
+        } finally {
+            delivering.unlock();
+        }
+    }
+
+}
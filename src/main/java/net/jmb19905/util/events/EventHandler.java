@@ -19,15 +19,61 @@
 package net.jmb19905.util.events;
 
 import net.jmb19905.util.Logger;
+import net.jmb19905.util.NamedLogger;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+/**
+ * Dispatches Events to the listeners registered for their id.
+ * Each event id maps to a copy-on-write {@link EventListenerList}, so performing an Event is a single map lookup
+ * followed by a walk over an array snapshot - no locking and no allocation.
+ * Listeners are called by priority, may have a filter on the {@link EventContext} that is checked before calling them,
+ * and a {@link Cancellable} Event doesn't reach any further listeners once it is cancelled.
+ * <p>
+ * {@link BatchEventListener}s instead receive all Events of their id at once when {@link #tick()} is called.
+ * With a {@link CoalescingPolicy} the waiting Events of one id and source are merged, so high-rate Events only reach them once per tick.
+ * The tick has to be driven by the application. As a safety net the Events are delivered right away, on the thread that performs them,
+ * once too many are waiting or the oldest one waited too long (see {@link #setBatchLimits(int, Duration)}). Without a tick every
+ * delivery happens that way, so batch listeners then run on whichever producer thread reaches a limit and hold it up.
+ * Deliveries never overlap: a listener receives one batch at a time, in order.
+ * <p>
+ * Listeners can also be registered for an Event class instead of an id. They receive the Events of that class and of all its subclasses,
+ * and the compiler checks that they accept the class. The listeners of each Event class and id are resolved once and cached
+ * until a listener is added or removed.
+ */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class EventHandler<C extends EventContext<?>> {
 
-    private boolean valid = false;
+    private static final NamedLogger LOGGER = Logger.get("events");
+    /**
+     * How many Events of one id may wait for the next tick by default
+     */
+    public static final int DEFAULT_MAX_PENDING = 10_000;
+    /**
+     * How long an Event may wait for the next tick by default. If the tick is late, the producer that notices it delivers the batch.
+     */
+    public static final Duration DEFAULT_MAX_BATCH_DELAY = Duration.ofSeconds(1);
+
+    private volatile boolean valid = false;
+    /**
+     * The listeners by the id of the event they listen to, the keys are "[handler id]:[event id]".
+     * Changes to the lists are seen right away, a list that is put into the map directly only once a listener is added or removed through the handler.
+     */
     protected final Map<String, EventListenerList<C>> eventListeners = new ConcurrentHashMap<>();
+    /**
+     * The listeners by the exact class of the event they listen to
+     */
+    private final Map<Class<?>, EventListenerList<C>> typedListeners = new ConcurrentHashMap<>();
+    /**
+     * The resolved listeners of every Event class and id performed so far - replaced as a whole when a listener is added or removed
+     */
+    private volatile Map<Class<?>, Route> routes = new ConcurrentHashMap<>();
+    private final Map<String, EventBatch> batches = new ConcurrentHashMap<>();
+    private volatile int maxPending = DEFAULT_MAX_PENDING;
+    private volatile long maxBatchDelayNanos = DEFAULT_MAX_BATCH_DELAY.toNanos();
     private final String id;
 
     public EventHandler(String id) {
@@ -43,25 +89,227 @@ public class EventHandler<C extends EventContext<?>> {
     }
 
     public void addEventListener(EventListener listener) {
-        EventListenerList<C> listenerBatch = eventListeners.get(id + ":" + listener.getId());
-        if (listenerBatch == null) {
-            listenerBatch = new EventListenerList<>();
+        addEventListener(listener, null);
+    }
+
+    /**
+     * Adds a listener that is only called for Events whose context matches a filter
+     * @param listener the listener
+     * @param filter checked before calling the listener, null for all Events
+     */
+    public void addEventListener(EventListener listener, Predicate<? super C> filter) {
+        eventListeners.computeIfAbsent(key(listener.getId()), key -> new EventListenerList<>()).add(listener, filter);
+        routes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Removes a listener
+     * @param listener the listener
+     * @return if the listener was registered
+     */
+    public boolean removeEventListener(EventListener listener) {
+        EventListenerList<C> listenerBatch = eventListeners.get(key(listener.getId()));
+        if (listenerBatch != null && listenerBatch.remove(listener)) {
+            routes = new ConcurrentHashMap<>();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a listener for all Events of a class, including its subclasses. The id of the listener isn't used.
+     * @param type the class of the Events
+     * @param listener the listener
+     */
+    public <E extends Event<C>> void addEventListener(Class<E> type, EventListener<? super E> listener) {
+        addEventListener(type, listener, null);
+    }
+
+    /**
+     * Adds a listener for the Events of a class, including its subclasses, whose context matches a filter.
+     * The id of the listener isn't used.
+     * @param type the class of the Events
+     * @param listener the listener
+     * @param filter checked before calling the listener, null for all Events
+     */
+    public <E extends Event<C>> void addEventListener(Class<E> type, EventListener<? super E> listener, Predicate<? super C> filter) {
+        typedListeners.computeIfAbsent(type, key -> new EventListenerList<>()).add((EventListener) listener, filter);
+        routes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Removes a listener registered for a class
+     * @param type the class the listener was registered for
+     * @param listener the listener
+     * @return if the listener was registered for the class
+     */
+    public <E extends Event<C>> boolean removeEventListener(Class<E> type, EventListener<? super E> listener) {
+        EventListenerList<C> listenerBatch = typedListeners.get(type);
+        if (listenerBatch != null && listenerBatch.remove((EventListener) listener)) {
+            routes = new ConcurrentHashMap<>();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a listener that receives the Events of its id as a list on every {@link #tick()}, which has to be called regularly
+     * @param listener the listener
+     */
+    public void addBatchListener(BatchEventListener listener) {
+        batches.computeIfAbsent(listener.getId(), key -> new EventBatch()).addListener(listener);
+    }
+
+    /**
+     * Removes a batch listener
+     * @param listener the listener
+     * @return if the listener was registered
+     */
+    public boolean removeBatchListener(BatchEventListener listener) {
+        EventBatch batch = batches.get(listener.getId());
+        return batch != null && batch.removeListener(listener);
+    }
+
+    /**
+     * Sets how the Events of an id are merged while they wait for the next tick. Only batch listeners are affected,
+     * the other listeners still get every Event right away.
+     * @param eventId the id of the Events
+     * @param policy merges two Events of the same source, null to keep every Event
+     */
+    public void setCoalescing(String eventId, CoalescingPolicy<?> policy) {
+        batches.computeIfAbsent(eventId, key -> new EventBatch()).setPolicy(policy);
+    }
+
+    /**
+     * Sets when the Events of an id are delivered without waiting for the next tick, on the thread that performs the Event
+     * which reaches a limit. This only keeps the waiting Events bounded if {@link #tick()} is late or never called.
+     * @param maxPending how many Events of one id may wait
+     * @param maxDelay how long the oldest Event may wait, it is checked when the next Event arrives
+     *                 (the producer that performs it then delivers the batch and waits for the batch listeners)
+     */
+    public void setBatchLimits(int maxPending, Duration maxDelay) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("At least one Event has to be able to wait");
+        }
+        this.maxPending = maxPending;
+        this.maxBatchDelayNanos = maxDelay.toNanos();
+    }
+
+    /**
+     * Delivers the Events collected since the last tick to the batch listeners, on the calling thread.
+     * Has to be called regularly when there are batch listeners, e.g. from a game loop or a ScheduledExecutorService -
+     * otherwise the Events are only delivered once they reach the limits of {@link #setBatchLimits(int, Duration)}.
+     */
+    public void tick() {
+        for (EventBatch batch : batches.values()) {
+            batch.deliver();
+        }
+    }
+
+    /**
+     * Keeps an Event for the batch listeners of its id until the next tick
+     * @param evt the Event
+     */
+    protected void queueForBatch(Event evt) {
+        if (!batches.isEmpty()) {
+            EventBatch batch = batches.get(evt.getId());
+            if (batch != null && batch.hasListeners() && batch.add(evt, maxPending, maxBatchDelayNanos)) {
+                batch.deliver();
+            }
         }
-        listenerBatch.addEvent(listener);
-        eventListeners.put(id + ":" + listener.getId(), listenerBatch);
     }
 
     public <E extends Event> void performEvent(E evt) {
         if (isValid()) {
-            Logger.trace("Performing Event: " + id + ":" + evt.getId());
-            EventListenerList<C> listenerBatch = eventListeners.get(id + ":" + evt.getId());
+            LOGGER.trace("Performing Event: {}:{}", id, evt.getId());
+            queueForBatch(evt);
+            listenersFor(evt).perform(evt);
+        } else {
+            LOGGER.warn("Event Handler is not valid");
+        }
+    }
+
+    /**
+     * Provides the listeners of an Event: those registered for its id and those registered for its class or a superclass, by priority.
+     * Listeners with the same priority are called in the order: by id, by class, by superclass.
+     * The result is cached per Event class and id, so this is usually two lookups without building a key.
+     * @param evt the Event
+     * @return the listeners, empty if there are none
+     */
+    EventListenerList.Snapshot listenersFor(Event evt) {
+        // if a listener changes while resolving, the result goes into the replaced map and is dropped with it
+        Map<Class<?>, Route> current = routes;
+        Class<?> type = evt.getClass();
+        Route route = current.get(type);
+        if (route == null) {
+            Route resolved = new Route(resolveTyped(type));
+            route = current.putIfAbsent(type, resolved);
+            if (route == null) {
+                route = resolved;
+            }
+        }
+        if (eventListeners.isEmpty()) {
+            return route.typed;
+        }
+        Route.ById byId = route.byId.get(evt.getId());
+        // the lists in eventListeners are public and may be changed without the handler, so their snapshot is compared
+        if (byId == null || (byId.list != null && byId.list.snapshot() != byId.seen)) {
+            EventListenerList<C> listenerBatch = eventListeners.get(key(evt.getId()));
+            EventListenerList.Snapshot seen = listenerBatch == null ? EventListenerList.Snapshot.EMPTY : listenerBatch.snapshot();
+            byId = new Route.ById(listenerBatch, seen, EventListenerList.Snapshot.merge(seen, route.typed));
+            route.byId.put(evt.getId(), byId);
+        }
+        return byId.listeners;
+    }
+
+    private String key(String eventId) {
+        return id + ":" + eventId;
+    }
+
+    private EventListenerList.Snapshot resolveTyped(Class<?> type) {
+        EventListenerList.Snapshot snapshot = EventListenerList.Snapshot.EMPTY;
+        for (Class<?> superType = type; superType != null && Event.class.isAssignableFrom(superType); superType = superType.getSuperclass()) {
+            EventListenerList<C> listenerBatch = typedListeners.get(superType);
             if (listenerBatch != null) {
-                for (EventListener listener : listenerBatch) {
-                    listener.perform(evt);
-                }
+                snapshot = EventListenerList.Snapshot.merge(snapshot, listenerBatch.snapshot());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * The resolved listeners of one Event class
+     */
+    private static final class Route {
+        /**
+         * The listeners registered for the class and its superclasses
+         */
+        private final EventListenerList.Snapshot typed;
+        /**
+         * The listeners of the Events of the class by their id
+         */
+        private final Map<String, ById> byId = new ConcurrentHashMap<>();
+
+        private Route(EventListenerList.Snapshot typed) {
+            this.typed = typed;
+        }
+
+        private static final class ById {
+            /**
+             * The listeners registered for the id, null if there were none
+             */
+            private final EventListenerList<?> list;
+            /**
+             * The snapshot of the list the listeners were merged from
+             */
+            private final EventListenerList.Snapshot seen;
+            private final EventListenerList.Snapshot listeners;
+
+            private ById(EventListenerList<?> list, EventListenerList.Snapshot seen, EventListenerList.Snapshot listeners) {
+                this.list = list;
+                this.seen = seen;
+                this.listeners = listeners;
             }
-        } else {
-            Logger.warn("Event Handler is not valid");
         }
     }
 
@@ -21,4 +21,12 @@ package net.jmb19905.util.events;
 public interface EventListener<E extends Event<? extends EventContext<?>>> extends java.util.EventListener {
     void perform(E evt);
     String getId();
+
+    /**
+     * Listeners with a higher priority are called first, listeners with the same priority in the order they were added
+     * @return the priority, 0 by default
+     */
+    default int getPriority() {
+        return 0;
+    }
 }
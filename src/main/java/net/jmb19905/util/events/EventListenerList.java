@@ -18,10 +18,296 @@
 
 package net.jmb19905.util.events;
 
-import java.util.ArrayList;
+import net.jmb19905.util.Logger;
+import net.jmb19905.util.NamedLogger;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The listeners of one event, ordered by priority. Changes copy the arrays (copy-on-write), so dispatching walks a snapshot
+ * without any locking and listeners may be added or removed while an event is performed.
+ * <p>
+ * As a List it always shows the current listeners. Adding puts a listener at the place of its priority, so changes at a position
+ * ({@code add(int, E)}, {@code set}) are not supported. Iterating walks a snapshot, so it never fails with a concurrent modification.
+ */
+public class EventListenerList<C extends EventContext<?>> extends AbstractList<EventListener<? extends Event<C>>> {
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
-public class EventListenerList<C extends EventContext<?>> extends ArrayList<EventListener<? extends Event<C>>> {
     public void addEvent(EventListener<? extends Event<C>> listener) {
-        super.add(listener);
+        add(listener, null);
+    }
+
+    /**
+     * Adds a listener behind all listeners with the same or a higher priority
+     * @param listener the listener
+     * @return true
+     */
+    @Override
+    public boolean add(EventListener<? extends Event<C>> listener) {
+        add(listener, null);
+        return true;
+    }
+
+    /**
+     * Adds a listener behind all listeners with the same or a higher priority
+     * @param listener the listener
+     * @param filter only Events whose context matches are passed to the listener, null for all Events
+     */
+    public synchronized void add(EventListener<? extends Event<C>> listener, Predicate<? super C> filter) {
+        Snapshot current = snapshot;
+        int length = current.listeners.length;
+        int priority = listener.getPriority();
+        int index = length;
+        while (index > 0 && current.priorities[index - 1] < priority) {
+            index--;
+        }
+        EventListener<?>[] listeners = insert(current.listeners, new EventListener<?>[length + 1], index, listener);
+        int[] priorities = new int[length + 1];
+        System.arraycopy(current.priorities, 0, priorities, 0, index);
+        priorities[index] = priority;
+        System.arraycopy(current.priorities, index, priorities, index + 1, length - index);
+        Predicate<?>[] filters = null;
+        if (filter != null || current.filters != null) {
+            filters = insert(current.filters == null ? new Predicate<?>[length] : current.filters, new Predicate<?>[length + 1], index, filter);
+        }
+        snapshot = new Snapshot(listeners, priorities, filters);
+    }
+
+    /**
+     * Removes a listener
+     * @param listener the listener
+     * @return if the listener was registered
+     */
+    @Override
+    public synchronized boolean remove(Object listener) {
+        Snapshot current = snapshot;
+        for (int i = 0; i < current.listeners.length; i++) {
+            if (current.listeners[i] == listener) {
+                removeAt(current, i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized EventListener<? extends Event<C>> remove(int index) {
+        Snapshot current = snapshot;
+        EventListener<? extends Event<C>> listener = (EventListener<? extends Event<C>>) current.listeners[index];
+        removeAt(current, index);
+        return listener;
+    }
+
+    @Override
+    public synchronized void clear() {
+        snapshot = Snapshot.EMPTY;
+    }
+
+    private void removeAt(Snapshot current, int index) {
+        snapshot = new Snapshot(remove(current.listeners, new EventListener<?>[current.listeners.length - 1], index),
+                remove(current.priorities, index),
+                current.filters == null ? null : remove(current.filters, new Predicate<?>[current.filters.length - 1], index));
+    }
+
+    /**
+     * Provides the current listeners with their filters. It never changes, later changes create a new one.
+     * @return the snapshot
+     */
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Provides the current listeners in the order they are called. The List doesn't change, later changes to this list aren't visible in it.
+     * @return a read-only List of the listeners
+     */
+    @SuppressWarnings("unchecked")
+    public List<EventListener<? extends Event<C>>> asList() {
+        return Collections.unmodifiableList(Arrays.asList((EventListener<? extends Event<C>>[]) snapshot.listeners));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public EventListener<? extends Event<C>> get(int index) {
+        return (EventListener<? extends Event<C>>) snapshot.listeners[index];
+    }
+
+    @Override
+    public int size() {
+        return snapshot.listeners.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return snapshot.listeners.length == 0;
+    }
+
+    @Override
+    public Iterator<EventListener<? extends Event<C>>> iterator() {
+        return asList().iterator();
+    }
+
+    private static <T> T[] insert(T[] from, T[] to, int index, T element) {
+        System.arraycopy(from, 0, to, 0, index);
+        to[index] = element;
+        System.arraycopy(from, index, to, index + 1, from.length - index);
+        return to;
+    }
+
+    private static <T> T[] remove(T[] from, T[] to, int index) {
+        System.arraycopy(from, 0, to, 0, index);
+        System.arraycopy(from, index + 1, to, index, from.length - index - 1);
+        return to;
+    }
+
+    private static int[] remove(int[] from, int index) {
+        int[] to = new int[from.length - 1];
+        System.arraycopy(from, 0, to, 0, index);
+        System.arraycopy(from, index + 1, to, index, from.length - index - 1);
+        return to;
+    }
+
+    /**
+     * An immutable state of the list
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static final class Snapshot {
+        private static final NamedLogger LOGGER = Logger.get("events");
+        static final Snapshot EMPTY = new Snapshot(new EventListener<?>[0], new int[0], null);
+
+        private final EventListener<?>[] listeners;
+        private final int[] priorities;
+        /**
+         * The filter of each listener (null for none), or null if no listener has one
+         */
+        private final Predicate<?>[] filters;
+
+        private Snapshot(EventListener<?>[] listeners, int[] priorities, Predicate<?>[] filters) {
+            this.listeners = listeners;
+            this.priorities = priorities;
+            this.filters = filters;
+        }
+
+        /**
+         * Creates a snapshot of a single listener without a filter
+         */
+        static Snapshot of(EventListener<?> listener) {
+            return new Snapshot(new EventListener<?>[]{listener}, new int[1], null);
+        }
+
+        /**
+         * Combines two snapshots into one ordered by priority. Listeners with the same priority keep their order,
+         * those of the first snapshot come before those of the second.
+         */
+        static Snapshot merge(Snapshot first, Snapshot second) {
+            if (second.listeners.length == 0) {
+                return first;
+            }
+            if (first.listeners.length == 0) {
+                return second;
+            }
+            int length = first.listeners.length + second.listeners.length;
+            EventListener<?>[] listeners = new EventListener<?>[length];
+            int[] priorities = new int[length];
+            Predicate<?>[] filters = first.filters == null && second.filters == null ? null : new Predicate<?>[length];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < length; k++) {
+                Snapshot from;
+                int index;
+                if (j == second.listeners.length || (i < first.listeners.length && first.priorities[i] >= second.priorities[j])) {
+                    from = first;
+                    index = i++;
+                } else {
+                    from = second;
+                    index = j++;
+                }
+                listeners[k] = from.listeners[index];
+                priorities[k] = from.priorities[index];
+                if (filters != null && from.filters != null) {
+                    filters[k] = from.filters[index];
+                }
+            }
+            return new Snapshot(listeners, priorities, filters);
+        }
+
+        int size() {
+            return listeners.length;
+        }
+
+        EventListener<?> get(int index) {
+            return listeners[index];
+        }
+
+        /**
+         * Checks the filter of a listener
+         * @return if the listener wants the Event
+         */
+        boolean accepts(int index, Event evt) {
+            Predicate filter = filters == null ? null : filters[index];
+            return filter == null || filter.test(evt.getContext());
+        }
+
+        /**
+         * Passes an Event to the listeners in order of priority, skipping those whose filter doesn't match and stopping when it is cancelled.
+         * An exception of a listener is passed on.
+         * @param evt the Event
+         */
+        void perform(Event evt) {
+            // kept small so it inlines into the dispatch - the common case is a plain array walk
+            if (filters == null && !evt.cancellable) {
+                for (EventListener listener : listeners) {
+                    listener.perform(evt);
+                }
+            } else {
+                performChecked(evt);
+            }
+        }
+
+        private void performChecked(Event evt) {
+            Cancellable cancellable = evt.cancellable ? (Cancellable) evt : null;
+            for (int i = 0; i < listeners.length; i++) {
+                if (cancellable != null && cancellable.isCancelled()) {
+                    break;
+                }
+                if (accepts(i, evt)) {
+                    ((EventListener) listeners[i]).perform(evt);
+                }
+            }
+        }
+
+        /**
+         * Like {@link #perform(Event)}, but an exception of a listener is logged and the others are still called
+         * @param evt the Event
+         * @return the first exception of a listener or null
+         */
+        Throwable performIsolated(Event evt) {
+            Cancellable cancellable = evt.cancellable ? (Cancellable) evt : null;
+            Throwable failure = null;
+            for (int i = 0; i < listeners.length; i++) {
+                if (cancellable != null && cancellable.isCancelled()) {
+                    break;
+                }
+                if (!accepts(i, evt)) {
+                    continue;
+                }
+                try {
+                    ((EventListener) listeners[i]).perform(evt);
+                } catch (RuntimeException | Error e) {
+                    LOGGER.error(e, "Error performing Event: " + evt.getId());
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            return failure;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package net.jmb19905.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.UnaryOperator;
+
+@Tag("benchmark")
+public class ANSIColorsBenchmark {
+
+    private static final int ITERATIONS = 2_000_000;
+
+    @Test
+    public void benchmarkReplaceANSI() {
+        String colored = ANSIColors.getWhite() + "[18.10.2026 12:00:00] [INFO] A typical log line with some text in it" + ANSIColors.getReset();
+        String plain = ANSIColors.replaceANSI(colored);
+        Assertions.assertEquals(plain, legacyReplaceANSI(colored));
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("colored | legacy: %6.1f ns/op | single pass: %6.1f ns/op%n",
+                    run(ANSIColorsBenchmark::legacyReplaceANSI, colored), run(ANSIColors::replaceANSI, colored));
+            System.out.printf("plain   | legacy: %6.1f ns/op | single pass: %6.1f ns/op%n",
+                    run(ANSIColorsBenchmark::legacyReplaceANSI, plain), run(ANSIColors::replaceANSI, plain));
+        }
+    }
+
+    private static double run(UnaryOperator<String> operation, String in) {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += operation.apply(in).length();
+        }
+        long time = System.nanoTime() - start;
+        Assertions.assertTrue(sink > 0);
+        return (double) time / ITERATIONS;
+    }
+
+    /**
+     * The implementation of ANSIColors.replaceANSI before the single pass stripper
+     */
+    private static String legacyReplaceANSI(String in) {
+        return in.replace(ANSIColors.getBlack(), "").replace(ANSIColors.getBlue(), "").replace(ANSIColors.getRed(), "")
+                .replace(ANSIColors.getReset(), "").replace(ANSIColors.getCyan(), "").replace(ANSIColors.getGreen(), "")
+                .replace(ANSIColors.getPurple(), "").replace(ANSIColors.getWhite(), "").replace(ANSIColors.getYellow(), "");
+    }
+
+}
@@ -1,5 +1,6 @@
 package net.jmb19905.util;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class ANSIColorsTest {
@@ -17,4 +18,23 @@ public class ANSIColorsTest {
         System.out.println(ANSIColors.replaceANSI(ANSIColors.getRed() + "This should be Normal" + ANSIColors.getReset()));
     }
 
+    @Test
+    void testReplaceANSI() {
+        String plain = "Nothing to strip";
+        Assertions.assertSame(plain, ANSIColors.replaceANSI(plain));
+        Assertions.assertFalse(ANSIColors.containsANSI(plain));
+
+        String colored = ANSIColors.getRed() + "Red " + ANSIColors.getWhite() + "White" + ANSIColors.getReset();
+        Assertions.assertTrue(ANSIColors.containsANSI(colored));
+        Assertions.assertEquals("Red White", ANSIColors.replaceANSI(colored));
+
+        // sequences that are not part of ANSIColors
+        Assertions.assertEquals("Bold orange, cleared", ANSIColors.replaceANSI("\u001B[1;38;5;208mBold orange\u001B[0m,\u001B[2K cleared\u001B[?25h"));
+        Assertions.assertEquals("Saved", ANSIColors.replaceANSI("\u001B7Saved\u001B["));
+
+        StringBuilder out = new StringBuilder("> ");
+        ANSIColors.stripANSI(colored, out);
+        Assertions.assertEquals("> Red White", out.toString());
+    }
+
 }
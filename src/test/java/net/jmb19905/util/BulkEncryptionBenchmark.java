@@ -0,0 +1,55 @@
+package net.jmb19905.util;
+
+import net.jmb19905.util.crypto.AesEncryption;
+import net.jmb19905.util.crypto.EncryptionUtility;
+import net.jmb19905.util.crypto.IEncryption;
+import net.jmb19905.util.crypto.OutputEncoding;
+import net.jmb19905.util.crypto.RandomKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+@Tag("benchmark")
+public class BulkEncryptionBenchmark {
+
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Test
+    public void benchmarkScaling() {
+        IEncryption encryption = new AesEncryption(new RandomKey(256), OutputEncoding.RAW);
+        byte[] file = new byte[FILE_SIZE];
+        new Random().nextBytes(file);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("sequential | %7.1f MB/s%n", run(file, data -> EncryptionUtility.encrypt2DBytes(encryption, data)));
+        for (int threads = 1; threads <= Math.max(4, cores); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int round = 0; round < 2; round++) {
+                    System.out.printf("%2d threads | %7.1f MB/s%n", threads, run(file, data -> EncryptionUtility.encrypt2DBytes(encryption, data, pool)));
+                }
+                byte[][] chunks = SerializationUtility.chunkArray(file, CHUNK_SIZE);
+                byte[][] roundTrip = EncryptionUtility.decrypt2DBytes(encryption, EncryptionUtility.encrypt2DBytes(encryption, chunks.clone(), pool), pool);
+                Assertions.assertTrue(Arrays.deepEquals(chunks, roundTrip));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static double run(byte[] file, UnaryOperator<byte[][]> operation) {
+        byte[][] chunks = SerializationUtility.chunkArray(file, CHUNK_SIZE);
+        long start = System.nanoTime();
+        byte[][] encrypted = operation.apply(chunks);
+        long time = System.nanoTime() - start;
+        Assertions.assertEquals(FILE_SIZE / CHUNK_SIZE, encrypted.length);
+        return FILE_SIZE / (time / 1e9) / (1024 * 1024);
+    }
+
+}
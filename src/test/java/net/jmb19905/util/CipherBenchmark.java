@@ -0,0 +1,83 @@
+package net.jmb19905.util;
+
+import net.jmb19905.util.crypto.AesEncryption;
+import net.jmb19905.util.crypto.IEncryption;
+import net.jmb19905.util.crypto.RandomKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.util.Base64;
+
+@Tag("benchmark")
+public class CipherBenchmark {
+
+    private static final long RUN_NANOS = 500_000_000L;
+    private static final int[] SIZES = {64, 1024, 16 * 1024, 256 * 1024, 1024 * 1024};
+
+    @Test
+    public void benchmarkEncryptDecrypt() {
+        SecretKey key = new RandomKey(256).get();
+        IEncryption cached = new AesEncryption(() -> key);
+        IEncryption legacy = new LegacyAesEncryption(key);
+
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            Assertions.assertArrayEquals(data, cached.decrypt(legacy.encrypt(data)));
+            for (int round = 0; round < 2; round++) {
+                System.out.printf("%8d B | getInstance per call: %10.0f ops/s | cached cipher: %10.0f ops/s%n",
+                        size, run(legacy, data), run(cached, data));
+            }
+        }
+    }
+
+    private static double run(IEncryption encryption, byte[] data) {
+        int sink = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long time;
+        do {
+            sink += encryption.decrypt(encryption.encrypt(data)).length;
+            ops++;
+            time = System.nanoTime() - start;
+        } while (time < RUN_NANOS);
+        Assertions.assertTrue(sink >= 0);
+        return ops * 1e9 / time;
+    }
+
+    /**
+     * AesEncryption before the Cipher instances were cached
+     */
+    private static final class LegacyAesEncryption implements IEncryption {
+        private final SecretKey key;
+
+        private LegacyAesEncryption(SecretKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public byte[] encrypt(byte[] in) {
+            try {
+                Cipher c = Cipher.getInstance("AES");
+                c.init(Cipher.ENCRYPT_MODE, key);
+                return Base64.getEncoder().withoutPadding().encode(c.doFinal(in));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public byte[] decrypt(byte[] in) {
+            try {
+                Cipher c = Cipher.getInstance("AES");
+                c.init(Cipher.DECRYPT_MODE, key);
+                return c.doFinal(Base64.getDecoder().decode(in));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package net.jmb19905.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+public class ClockTest {
+
+    @Test
+    public void testCachedFormat() {
+        long timestamp = 1_650_000_000_123L;
+        String pattern = "dd.MM.yyyy HH:mm:ss";
+        String expected = new SimpleDateFormat(pattern).format(new Date(timestamp));
+        Assertions.assertEquals(expected, Clock.getCompactDate(pattern, timestamp));
+        // same second - the cached text has to be reused
+        Assertions.assertSame(Clock.getCompactDate(pattern, timestamp), Clock.getCompactDate(pattern, timestamp + 500));
+
+        StringBuilder builder = new StringBuilder("[");
+        Clock.formatDate(pattern, timestamp, builder);
+        Assertions.assertEquals("[" + expected, builder.toString());
+
+        CharBuffer buffer = CharBuffer.allocate(32);
+        Clock.formatDate(pattern, timestamp, buffer);
+        Assertions.assertEquals(expected, buffer.flip().toString());
+    }
+
+    @Test
+    public void testMillisecondFormat() {
+        String pattern = "HH:mm:ss.SSS";
+        long timestamp = 1_650_000_000_123L;
+        Assertions.assertEquals(new SimpleDateFormat(pattern).format(new Date(timestamp)), Clock.getCompactDate(pattern, timestamp));
+        Assertions.assertEquals(new SimpleDateFormat(pattern).format(new Date(timestamp + 1)), Clock.getCompactDate(pattern, timestamp + 1));
+    }
+
+}
@@ -1,10 +1,28 @@
 package net.jmb19905.util;
 
+import net.jmb19905.util.crypto.AesEncryption;
 import net.jmb19905.util.crypto.Encryption;
+import net.jmb19905.util.crypto.EncryptionUtility;
+import net.jmb19905.util.crypto.IEncryption;
+import net.jmb19905.util.crypto.InvalidEncryptionException;
+import net.jmb19905.util.crypto.KeyPairPool;
+import net.jmb19905.util.crypto.OutputEncoding;
+import net.jmb19905.util.crypto.RandomKey;
+import net.jmb19905.util.crypto.SessionCache;
+import net.jmb19905.util.crypto.SessionEncryption;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class EncryptionTest {
 
@@ -26,4 +44,200 @@ public class EncryptionTest {
         Assertions.assertArrayEquals(testBytes, decrypted);
     }
 
+    @Test
+    public void testSessions() throws InvalidEncryptionException {
+        Encryption server = new Encryption();
+        Encryption client = new Encryption();
+        SessionCache sessions = new SessionCache(1, Duration.ofMinutes(5));
+
+        server.setReceiverPublicKey(client.getPublicKey(), sessions);
+        Assertions.assertEquals(1, sessions.getMisses());
+        client.setReceiverPublicKey(server.getPublicKey());
+
+        // the same keys again - e.g. a client that stored its Encryption and reconnects
+        Encryption resumed = new Encryption(server.getPublicKey().getEncoded(), server.getPrivateKey().getEncoded(), null);
+        resumed.setReceiverPublicKey(client.getPublicKey(), sessions);
+        Assertions.assertEquals(1, sessions.getHits());
+        Assertions.assertArrayEquals(client.getSharedSecret(), resumed.getSharedSecret());
+        Assertions.assertArrayEquals("Hello".getBytes(), resumed.decrypt(client.encrypt("Hello".getBytes())));
+
+        // the least recently used session is evicted
+        Encryption other = new Encryption();
+        server.setReceiverPublicKey(other.getPublicKey(), sessions);
+        Assertions.assertEquals(1, sessions.size());
+        Assertions.assertNull(sessions.get(server.getPublicKey(), client.getPublicKey()));
+    }
+
+    @Test
+    public void testSessionEncryption() throws GeneralSecurityException {
+        Encryption encryption1 = new Encryption();
+        Encryption encryption2 = new Encryption();
+        encryption1.setReceiverPublicKey(encryption2.getPublicKey());
+        encryption2.setReceiverPublicKey(encryption1.getPublicKey());
+        SessionEncryption session1 = encryption1.openSession(100, Duration.ofHours(1));
+        SessionEncryption session2 = encryption2.openSession(100, Duration.ZERO);
+
+        byte[] message = new byte[60];
+        new Random().nextBytes(message);
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertArrayEquals(message, session2.decrypt(session1.encrypt(message)));
+            Assertions.assertArrayEquals(message, session1.decrypt(session2.encrypt(message)));
+        }
+        // rekeyed after every second message
+        Assertions.assertEquals(2, session1.getSendEpoch());
+        // rekeyed before every message
+        Assertions.assertEquals(5, session2.getSendEpoch());
+
+        // each direction has its own key
+        byte[] encrypted = session1.encrypt(message);
+        Assertions.assertNull(session1.decrypt(encrypted));
+        Assertions.assertArrayEquals(message, session2.decrypt(encrypted));
+
+        ByteBuffer out = ByteBuffer.allocate(session1.getEncryptedSize(message.length));
+        session1.rekey();
+        session1.encrypt(ByteBuffer.wrap(message), out);
+        ByteBuffer decrypted = ByteBuffer.allocate(message.length);
+        session2.decrypt(out.flip(), decrypted);
+        Assertions.assertArrayEquals(message, decrypted.array());
+    }
+
+    @Test
+    public void testForgedEpoch() throws GeneralSecurityException {
+        Encryption encryption1 = new Encryption();
+        Encryption encryption2 = new Encryption();
+        encryption1.setReceiverPublicKey(encryption2.getPublicKey());
+        encryption2.setReceiverPublicKey(encryption1.getPublicKey());
+        SessionEncryption session1 = encryption1.openSession(SessionEncryption.DEFAULT_REKEY_BYTES, Duration.ofHours(1));
+        SessionEncryption session2 = encryption2.openSession(SessionEncryption.DEFAULT_REKEY_BYTES, Duration.ofHours(1));
+        byte[] message = "Hello".getBytes();
+
+        // a message of the next epoch with a broken tag doesn't move the receiver forward
+        session1.rekey();
+        ByteBuffer next = ByteBuffer.allocate(session1.getEncryptedSize(message.length));
+        session1.encrypt(ByteBuffer.wrap(message), next);
+        next.put(next.position() - 1, (byte) (next.get(next.position() - 1) ^ 1));
+        Assertions.assertThrows(GeneralSecurityException.class, () -> session2.decrypt(next.flip(), ByteBuffer.allocate(message.length)));
+
+        // neither does an epoch far ahead
+        ByteBuffer forged = ByteBuffer.allocate(session1.getEncryptedSize(message.length));
+        forged.putInt(Integer.MAX_VALUE).put(new byte[forged.remaining()]).flip();
+        Assertions.assertThrows(GeneralSecurityException.class, () -> session2.decrypt(forged, ByteBuffer.allocate(message.length)));
+
+        Assertions.assertArrayEquals(message, session2.decrypt(session1.encrypt(message)));
+        session1.rekey();
+        Assertions.assertArrayEquals(message, session2.decrypt(session1.encrypt(message)));
+        Assertions.assertEquals(2, session1.getSendEpoch());
+    }
+
+    @Test
+    public void testKeyDecoding() {
+        Encryption encryption1 = new Encryption();
+        Encryption encryption2 = new Encryption();
+        byte[][] publicKeys = {encryption1.getPublicKey().getEncoded(), encryption2.getPublicKey().getEncoded(), new byte[]{1, 2, 3}};
+        PublicKey[] decoded = EncryptionUtility.createPublicKeysFromData(publicKeys);
+        Assertions.assertEquals(encryption1.getPublicKey(), decoded[0]);
+        Assertions.assertEquals(encryption2.getPublicKey(), decoded[1]);
+        Assertions.assertNull(decoded[2]);
+        PrivateKey[] privateKeys = EncryptionUtility.createPrivateKeysFromData(new byte[][]{encryption1.getPrivateKey().getEncoded()});
+        Assertions.assertEquals(encryption1.getPrivateKey(), privateKeys[0]);
+
+        EncryptionUtility.setKeyCacheSize(1);
+        try {
+            PublicKey cached = EncryptionUtility.createPublicKeyFromData(publicKeys[0]);
+            Assertions.assertSame(cached, EncryptionUtility.createPublicKeyFromData(publicKeys[0]));
+            EncryptionUtility.createPublicKeyFromData(publicKeys[1]);
+            Assertions.assertNotSame(cached, EncryptionUtility.createPublicKeyFromData(publicKeys[0]));
+            PublicKey[] batch = EncryptionUtility.createPublicKeysFromData(publicKeys);
+            Assertions.assertSame(batch[1], EncryptionUtility.createPublicKeyFromData(publicKeys[1]));
+            Assertions.assertNull(batch[2]);
+        } finally {
+            EncryptionUtility.setKeyCacheSize(0);
+        }
+    }
+
+    @Test
+    public void testKeyPairPool() {
+        try (KeyPairPool pool = new KeyPairPool(4)) {
+            Encryption encryption1 = new Encryption(pool);
+            Encryption encryption2 = new Encryption(pool);
+            Assertions.assertNotEquals(encryption1.getPublicKey(), encryption2.getPublicKey());
+            encryption1.setReceiverPublicKey(encryption2.getPublicKey());
+            encryption2.setReceiverPublicKey(encryption1.getPublicKey());
+            Assertions.assertArrayEquals(encryption1.getSharedSecret(), encryption2.getSharedSecret());
+        }
+    }
+
+    @Test
+    public void testEncodings() {
+        SecretKey key = new RandomKey(256).get();
+        IEncryption base64 = new AesEncryption(() -> key);
+        IEncryption raw = new AesEncryption(() -> key, OutputEncoding.RAW);
+
+        byte[] testBytes = new byte[100];
+        new Random().nextBytes(testBytes);
+        byte[] encoded = base64.encrypt(testBytes);
+        byte[] binary = raw.encrypt(testBytes);
+        Assertions.assertEquals(112, binary.length);
+        Assertions.assertEquals(150, encoded.length);
+        Assertions.assertArrayEquals(testBytes, raw.decrypt(binary));
+        Assertions.assertArrayEquals(testBytes, base64.decrypt(encoded));
+
+        // Strings stay text no matter the encoding
+        String text = "Some text \u00e4\u00f6\u00fc";
+        String encrypted = EncryptionUtility.encryptString(raw, text);
+        Assertions.assertEquals(EncryptionUtility.encryptString(base64, text), encrypted);
+        Assertions.assertEquals(text, EncryptionUtility.decryptString(base64, encrypted));
+        Assertions.assertEquals(text, EncryptionUtility.decryptString(raw, encrypted));
+    }
+
+    @Test
+    public void testParallelBulk() {
+        IEncryption aes = new AesEncryption(new RandomKey(256));
+        byte[] file = new byte[100_000];
+        new Random().nextBytes(file);
+        byte[][] chunks = SerializationUtility.chunkArray(file, 1000);
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            byte[][] encrypted = EncryptionUtility.encrypt2DBytes(aes, chunks.clone(), pool);
+            Assertions.assertTrue(Arrays.deepEquals(chunks, EncryptionUtility.decrypt2DBytes(aes, encrypted.clone())));
+            Assertions.assertTrue(Arrays.deepEquals(chunks, EncryptionUtility.decrypt2DBytes(aes, encrypted, pool)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testByteBuffers() throws GeneralSecurityException {
+        Encryption encryption1 = new Encryption();
+        Encryption encryption2 = new Encryption();
+        encryption1.setReceiverPublicKey(encryption2.getPublicKey());
+        encryption2.setReceiverPublicKey(encryption1.getPublicKey());
+        testByteBuffers(encryption1, encryption2);
+
+        IEncryption aes = new AesEncryption(new RandomKey(256));
+        testByteBuffers(aes, aes);
+    }
+
+    private static void testByteBuffers(IEncryption sender, IEncryption receiver) throws GeneralSecurityException {
+        Random random = new Random();
+        byte[] testBytes = new byte[random.nextInt(1000)];
+        random.nextBytes(testBytes);
+
+        ByteBuffer in = ByteBuffer.wrap(testBytes);
+        ByteBuffer tooSmall = ByteBuffer.allocateDirect(testBytes.length);
+        Assertions.assertThrows(ShortBufferException.class, () -> sender.encrypt(in, tooSmall));
+        Assertions.assertEquals(0, in.position());
+
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(sender.getEncryptedSize(testBytes.length));
+        int length = sender.encrypt(in, encrypted);
+        Assertions.assertEquals(length, encrypted.position());
+        Assertions.assertFalse(in.hasRemaining());
+
+        encrypted.flip();
+        ByteBuffer decrypted = ByteBuffer.allocate(receiver.getDecryptedSize(length));
+        receiver.decrypt(encrypted, decrypted);
+        Assertions.assertArrayEquals(testBytes, Arrays.copyOf(decrypted.array(), decrypted.position()));
+    }
+
 }
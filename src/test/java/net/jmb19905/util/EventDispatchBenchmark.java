@@ -0,0 +1,116 @@
+package net.jmb19905.util;
+
+import net.jmb19905.util.events.Event;
+import net.jmb19905.util.events.EventContext;
+import net.jmb19905.util.events.EventHandler;
+import net.jmb19905.util.events.EventListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Tag("benchmark")
+public class EventDispatchBenchmark {
+
+    private static final long RUN_NANOS = 500_000_000L;
+
+    @Test
+    public void benchmarkDispatch() {
+        Logger.setLevel(Logger.Level.INFO);
+        for (int listeners : new int[]{1, 10, 100}) {
+            long[] counter = new long[1];
+            EventHandler<BenchmarkContext> handler = new EventHandler<>("benchmark");
+            handler.setValid(true);
+            EventHandler<BenchmarkContext> typed = new EventHandler<>("benchmark");
+            typed.setValid(true);
+            LegacyEventHandler legacy = new LegacyEventHandler("benchmark");
+            for (int i = 0; i < listeners; i++) {
+                CountingListener listener = new CountingListener(counter);
+                handler.addEventListener(listener);
+                typed.addEventListener(BenchmarkEvent.class, listener);
+                legacy.addEventListener(listener);
+            }
+            BenchmarkEvent event = new BenchmarkEvent();
+            for (int round = 0; round < 2; round++) {
+                System.out.printf("%3d listeners | legacy: %12.0f events/s | copy-on-write: %12.0f events/s | by type: %12.0f events/s%n",
+                        listeners, run(legacy::performEvent, event), run(handler::performEvent, event), run(typed::performEvent, event));
+            }
+            Assertions.assertTrue(counter[0] > 0);
+        }
+    }
+
+    private static double run(Consumer<BenchmarkEvent> dispatch, BenchmarkEvent event) {
+        long events = 0;
+        long start = System.nanoTime();
+        long time;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                dispatch.accept(event);
+            }
+            events += 1000;
+            time = System.nanoTime() - start;
+        } while (time < RUN_NANOS);
+        return events * 1e9 / time;
+    }
+
+    private static final class BenchmarkContext extends EventContext<Object> {
+        private BenchmarkContext() {
+            super(new Object());
+        }
+    }
+
+    private static final class BenchmarkEvent extends Event<BenchmarkContext> {
+        private BenchmarkEvent() {
+            super(new BenchmarkContext(), "benchmark_event");
+        }
+    }
+
+    private static final class CountingListener implements EventListener<BenchmarkEvent> {
+        private final long[] counter;
+
+        private CountingListener(long[] counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void perform(BenchmarkEvent evt) {
+            counter[0]++;
+        }
+
+        @Override
+        public String getId() {
+            return "benchmark_event";
+        }
+    }
+
+    /**
+     * The dispatch of EventHandler before the copy-on-write listener arrays
+     */
+    private static final class LegacyEventHandler {
+        private final Map<String, List<CountingListener>> eventListeners = new ConcurrentHashMap<>();
+        private final String id;
+
+        private LegacyEventHandler(String id) {
+            this.id = id;
+        }
+
+        private void addEventListener(CountingListener listener) {
+            eventListeners.computeIfAbsent(id + ":" + listener.getId(), key -> new ArrayList<>()).add(listener);
+        }
+
+        private void performEvent(BenchmarkEvent evt) {
+            List<CountingListener> listeners = eventListeners.get(id + ":" + evt.getId());
+            if (listeners != null) {
+                for (CountingListener listener : listeners) {
+                    listener.perform(evt);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,469 @@
+package net.jmb19905.util;
+
+import net.jmb19905.util.events.AsyncEventHandler;
+import net.jmb19905.util.events.BatchEventListener;
+import net.jmb19905.util.events.CancellableEvent;
+import net.jmb19905.util.events.CoalescingPolicy;
+import net.jmb19905.util.events.Event;
+import net.jmb19905.util.events.EventContext;
+import net.jmb19905.util.events.EventHandler;
+import net.jmb19905.util.events.EventListener;
+import net.jmb19905.util.events.EventListenerList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class EventHandlerTest {
+
+    @Test
+    public void testDispatch() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<String> performed = new ArrayList<>();
+        TestListener first = new TestListener("a", evt -> performed.add("first"));
+        handler.addEventListener(first);
+        handler.addEventListener(new TestListener("a", evt -> performed.add("second")));
+        handler.addEventListener(new TestListener("b", evt -> performed.add("other")));
+
+        handler.performEvent(new TestEvent("a"));
+        Assertions.assertEquals(List.of("first", "second"), performed);
+
+        performed.clear();
+        Assertions.assertTrue(handler.removeEventListener(first));
+        Assertions.assertFalse(handler.removeEventListener(first));
+        handler.performEvent(new TestEvent("a"));
+        Assertions.assertEquals(List.of("second"), performed);
+    }
+
+    @Test
+    public void testListenerListView() {
+        EventListenerList<TestContext> list = new EventListenerList<>();
+        TestListener first = new TestListener("a", evt -> {});
+        TestListener second = new TestListener("a", evt -> {});
+        list.addEvent(first);
+        List<EventListener<? extends Event<TestContext>>> view = list.asList();
+        list.addEvent(second);
+        Assertions.assertEquals(List.of(first), view);
+        Assertions.assertEquals(List.of(first, second), list.asList());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> list.asList().clear());
+
+        // the list itself works like before
+        List<EventListener<? extends Event<TestContext>>> asList = list;
+        Assertions.assertEquals(2, asList.size());
+        Assertions.assertSame(second, asList.get(1));
+        Assertions.assertTrue(asList.remove(first));
+        Assertions.assertEquals(List.of(second), asList);
+        asList.clear();
+        Assertions.assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testListenerKeys() {
+        // subclasses still find the listeners under "[handler id]:[event id]"
+        List<Integer> sizes = new ArrayList<>();
+        new EventHandler<TestContext>("test") {
+            {
+                addEventListener(new TestListener("a", evt -> {}));
+                sizes.add(eventListeners.get("test:a").size());
+            }
+        };
+        Assertions.assertEquals(List.of(1), sizes);
+    }
+
+    @Test
+    public void testCachedRoutes() {
+        List<String> performed = new ArrayList<>();
+        EventHandler<TestContext> handler = new EventHandler<>("test") {
+            @Override
+            public <E extends Event> void performEvent(E evt) {
+                super.performEvent(evt);
+                if (performed.size() == 2) {
+                    // changed without the handler - the cached listeners still have to see it
+                    eventListeners.get("test:sub").add(new TestListener("sub", e -> performed.add("direct")));
+                }
+            }
+        };
+        handler.setValid(true);
+        handler.addEventListener(TestEvent.class, new TestListener("unused", evt -> performed.add("type")));
+        handler.addEventListener(new TestListener("sub", evt -> performed.add("id")));
+        handler.performEvent(new TestSubEvent(1));
+        handler.performEvent(new TestSubEvent(2));
+        Assertions.assertEquals(List.of("id", "type", "id", "direct", "type"), performed);
+    }
+
+    @Test
+    public void testModifyWhilePerforming() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<String> performed = new ArrayList<>();
+        handler.addEventListener(new TestListener("a", evt -> {
+            performed.add("adding");
+            handler.addEventListener(new TestListener("a", e -> performed.add("added")));
+        }));
+        // the running dispatch works on a snapshot, the new listener only sees the next event
+        handler.performEvent(new TestEvent("a"));
+        Assertions.assertEquals(List.of("adding"), performed);
+        handler.performEvent(new TestEvent("a"));
+        Assertions.assertEquals(List.of("adding", "adding", "added"), performed);
+    }
+
+    @Test
+    public void testPriorityAndCancelling() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<String> performed = new ArrayList<>();
+        handler.addEventListener(new TestCancellableListener("low", -1, evt -> performed.add("low")));
+        handler.addEventListener(new TestCancellableListener("c", 0, evt -> performed.add("normal")));
+        handler.addEventListener(new TestCancellableListener("c", 10, evt -> {
+            performed.add("high");
+            evt.setCancelled(evt.cancel);
+        }));
+        handler.addEventListener(new TestCancellableListener("c", 0, evt -> performed.add("normal 2")));
+        handler.addEventListener(new TestCancellableListener("c", -1, evt -> performed.add("low")));
+
+        handler.performEvent(new TestCancellableEvent(false));
+        Assertions.assertEquals(List.of("high", "normal", "normal 2", "low"), performed);
+        performed.clear();
+        handler.performEvent(new TestCancellableEvent(true));
+        Assertions.assertEquals(List.of("high"), performed);
+    }
+
+    @Test
+    public void testFilters() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<String> performed = new ArrayList<>();
+        handler.addEventListener(new TestListener("a", evt -> performed.add("all")));
+        handler.addEventListener(new TestListener("a", evt -> performed.add("mine")), ctx -> ctx.getSource().equals("mine"));
+
+        handler.performEvent(new TestEvent(new TestContext("other"), "a", 0));
+        Assertions.assertEquals(List.of("all"), performed);
+        handler.performEvent(new TestEvent(new TestContext("mine"), "a", 0));
+        Assertions.assertEquals(List.of("all", "all", "mine"), performed);
+    }
+
+    @Test
+    public void testTypeRouting() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<String> performed = new ArrayList<>();
+        handler.addEventListener(TestEvent.class, new TestListener("unused", evt -> performed.add("event " + evt.number)));
+        handler.performEvent(new TestSubEvent(1));
+
+        // the resolved listeners of TestSubEvent are cached and have to be resolved again
+        TestListener sub = new TestListener("unused", evt -> performed.add("sub " + evt.number));
+        handler.addEventListener(TestSubEvent.class, sub);
+        handler.performEvent(new TestSubEvent(2));
+        handler.performEvent(new TestEvent("a", 3));
+        Assertions.assertTrue(handler.removeEventListener(TestSubEvent.class, sub));
+        Assertions.assertFalse(handler.removeEventListener(TestSubEvent.class, sub));
+        handler.performEvent(new TestSubEvent(4));
+        Assertions.assertEquals(List.of("event 1", "sub 2", "event 2", "event 3", "event 4"), performed);
+    }
+
+    @Test
+    public void testTypeAndIdPriorities() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<String> performed = new ArrayList<>();
+        handler.addEventListener(new TestCancellableListener("c", 0, evt -> performed.add("id")));
+        handler.addEventListener(TestCancellableEvent.class, new TestCancellableListener("unused", 5, evt -> {
+            performed.add("type");
+            if (evt.cancel) {
+                evt.setCancelled(true);
+            }
+        }));
+        handler.performEvent(new TestCancellableEvent(false));
+        handler.performEvent(new TestCancellableEvent(true));
+        Assertions.assertEquals(List.of("type", "id", "type"), performed);
+    }
+
+    @Test
+    public void testBatches() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<List<TestEvent>> batches = new ArrayList<>();
+        List<Integer> immediate = new ArrayList<>();
+        handler.addBatchListener(new TestBatchListener("a", events -> batches.add(new ArrayList<>(events))));
+        handler.addEventListener(new TestListener("a", evt -> immediate.add(evt.number)));
+
+        for (int i = 0; i < 100; i++) {
+            handler.performEvent(new TestEvent("a", i));
+        }
+        Assertions.assertEquals(100, immediate.size());
+        Assertions.assertTrue(batches.isEmpty());
+        handler.tick();
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(100, batches.get(0).size());
+        Assertions.assertEquals(99, batches.get(0).get(99).number);
+
+        // nothing new - no delivery
+        handler.tick();
+        Assertions.assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testBatchLimits() throws InterruptedException {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<Integer> sizes = new ArrayList<>();
+        handler.addBatchListener(new TestBatchListener("a", events -> sizes.add(events.size())));
+
+        // nobody calls tick - the Events are delivered once too many are waiting
+        handler.setBatchLimits(10, Duration.ofHours(1));
+        for (int i = 0; i < 25; i++) {
+            handler.performEvent(new TestEvent("a", i));
+        }
+        Assertions.assertEquals(List.of(10, 10), sizes);
+
+        // or when the oldest one waited too long
+        handler.setBatchLimits(10, Duration.ofMillis(10));
+        Thread.sleep(20);
+        handler.performEvent(new TestEvent("a"));
+        Assertions.assertEquals(List.of(10, 10, 6), sizes);
+    }
+
+    @Test
+    public void testSerialDelivery() throws InterruptedException {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        handler.setBatchLimits(10, Duration.ofHours(1));
+        AtomicInteger delivering = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        handler.addBatchListener(new TestBatchListener("a", events -> {
+            if (delivering.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            events.forEach(evt -> received.add(evt.number));
+            Thread.yield();
+            delivering.decrementAndGet();
+        }));
+
+        // the ticks and the deliveries of the producer when it reaches the limit race for the same batch
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread ticker = new Thread(() -> {
+            while (running.get()) {
+                handler.tick();
+            }
+        });
+        ticker.start();
+        for (int i = 0; i < 10_000; i++) {
+            handler.performEvent(new TestEvent("a", i));
+        }
+        running.set(false);
+        ticker.join();
+        handler.tick();
+
+        Assertions.assertEquals(0, overlaps.get());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            expected.add(i);
+        }
+        Assertions.assertEquals(expected, received);
+    }
+
+    @Test
+    public void testCoalescing() {
+        EventHandler<TestContext> handler = new EventHandler<>("test");
+        handler.setValid(true);
+        List<TestEvent> received = new ArrayList<>();
+        handler.addBatchListener(new TestBatchListener("a", received::addAll));
+        handler.setCoalescing("a", CoalescingPolicy.<TestEvent>keepLatest());
+
+        TestContext first = new TestContext("first");
+        TestContext second = new TestContext("second");
+        for (int i = 0; i < 1000; i++) {
+            handler.performEvent(new TestEvent(i % 2 == 0 ? first : second, "a", i));
+        }
+        handler.tick();
+        Assertions.assertEquals(2, received.size());
+        Assertions.assertEquals("first", received.get(0).getSource());
+        Assertions.assertEquals(998, received.get(0).number);
+        Assertions.assertEquals(999, received.get(1).number);
+    }
+
+    @Test
+    public void testAsyncOrdering() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (boolean parallel : new boolean[]{false, true}) {
+                AsyncEventHandler<TestContext> handler = new AsyncEventHandler<>("test", executor, parallel);
+                handler.setValid(true);
+                List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+                List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+                handler.addEventListener(new TestListener("a", evt -> first.add(evt.number)));
+                handler.addEventListener(new TestListener("a", evt -> second.add(evt.number)));
+
+                CompletableFuture<Void> last = null;
+                for (int i = 0; i < 1000; i++) {
+                    last = handler.performEventAsync(new TestEvent("a", i));
+                }
+                last.get(10, TimeUnit.SECONDS);
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    expected.add(i);
+                }
+                Assertions.assertEquals(expected, first);
+                Assertions.assertEquals(expected, second);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncFanOut() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncEventHandler<TestContext> handler = new AsyncEventHandler<>("test", executor, true);
+            handler.setValid(true);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch fastDone = new CountDownLatch(1);
+            handler.addEventListener(new TestListener("a", evt -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            handler.addEventListener(new TestListener("a", evt -> fastDone.countDown()));
+            handler.addEventListener(new TestListener("a", evt -> {
+                throw new IllegalStateException("failing listener");
+            }));
+
+            // performing doesn't wait for the listeners and the slow one doesn't hold up the others
+            CompletableFuture<Void> done = handler.performEventAsync(new TestEvent("a"));
+            Assertions.assertTrue(fastDone.await(10, TimeUnit.SECONDS));
+            Assertions.assertFalse(done.isDone());
+            release.countDown();
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> done.get(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static final class TestContext extends EventContext<String> {
+        TestContext() {
+            this("source");
+        }
+
+        TestContext(String source) {
+            super(source);
+        }
+    }
+
+    static class TestEvent extends Event<TestContext> {
+        private final int number;
+
+        TestEvent(String id) {
+            this(id, 0);
+        }
+
+        TestEvent(String id, int number) {
+            this(new TestContext(), id, number);
+        }
+
+        TestEvent(TestContext ctx, String id, int number) {
+            super(ctx, id);
+            this.number = number;
+        }
+    }
+
+    static final class TestSubEvent extends TestEvent {
+        TestSubEvent(int number) {
+            super("sub", number);
+        }
+    }
+
+    static final class TestListener implements EventListener<TestEvent> {
+        private final String id;
+        private final Consumer<TestEvent> action;
+
+        TestListener(String id, Consumer<TestEvent> action) {
+            this.id = id;
+            this.action = action;
+        }
+
+        @Override
+        public void perform(TestEvent evt) {
+            action.accept(evt);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    static final class TestBatchListener implements BatchEventListener<TestEvent> {
+        private final String id;
+        private final Consumer<List<TestEvent>> action;
+
+        TestBatchListener(String id, Consumer<List<TestEvent>> action) {
+            this.id = id;
+            this.action = action;
+        }
+
+        @Override
+        public void perform(List<TestEvent> events) {
+            action.accept(events);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    static final class TestCancellableEvent extends CancellableEvent<TestContext> {
+        private final boolean cancel;
+
+        TestCancellableEvent(boolean cancel) {
+            super(new TestContext(), "c");
+            this.cancel = cancel;
+        }
+    }
+
+    static final class TestCancellableListener implements EventListener<TestCancellableEvent> {
+        private final String id;
+        private final int priority;
+        private final Consumer<TestCancellableEvent> action;
+
+        TestCancellableListener(String id, int priority, Consumer<TestCancellableEvent> action) {
+            this.id = id;
+            this.priority = priority;
+            this.action = action;
+        }
+
+        @Override
+        public void perform(TestCancellableEvent evt) {
+            action.accept(evt);
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+
+}
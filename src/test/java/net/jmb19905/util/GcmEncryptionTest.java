@@ -0,0 +1,109 @@
+package net.jmb19905.util;
+
+import net.jmb19905.util.crypto.EncryptionUtility;
+import net.jmb19905.util.crypto.GcmEncryption;
+import net.jmb19905.util.crypto.OutputEncoding;
+import net.jmb19905.util.crypto.RandomKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class GcmEncryptionTest {
+
+    @Test
+    public void testMessages() {
+        GcmEncryption encryption = new GcmEncryption(new RandomKey(256));
+        byte[] message = "Authenticated message".getBytes();
+        byte[] first = encryption.encrypt(message);
+        Assertions.assertArrayEquals(message, encryption.decrypt(first));
+        // every message has its own nonce
+        Assertions.assertFalse(new String(first).equals(new String(encryption.encrypt(message))));
+        Assertions.assertEquals("Text", EncryptionUtility.decryptString(encryption, EncryptionUtility.encryptString(encryption, "Text")));
+        // a message that cannot be verified is never passed on
+        Assertions.assertNull(new GcmEncryption(new RandomKey(256)).decrypt(first));
+        Assertions.assertNull(EncryptionUtility.decryptString(new GcmEncryption(new RandomKey(256)), EncryptionUtility.encryptString(encryption, "Text")));
+
+        GcmEncryption raw = new GcmEncryption(new RandomKey(256).get(), OutputEncoding.RAW);
+        byte[] binary = raw.encrypt(message);
+        Assertions.assertEquals(12 + message.length + 16, binary.length);
+        Assertions.assertArrayEquals(message, raw.decrypt(binary));
+    }
+
+    @Test
+    public void testStreams() throws IOException {
+        GcmEncryption encryption = new GcmEncryption(new RandomKey(256));
+        Random random = new Random();
+        for (int size : new int[]{0, 1, GcmEncryption.SEGMENT_SIZE, 3 * GcmEncryption.SEGMENT_SIZE + 17}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            try (OutputStream out = encryption.encryptingStream(encrypted)) {
+                out.write(data);
+            }
+            try (InputStream in = encryption.decryptingStream(new ByteArrayInputStream(encrypted.toByteArray()))) {
+                Assertions.assertArrayEquals(data, in.readAllBytes());
+            }
+
+            ByteArrayOutputStream channelEncrypted = new ByteArrayOutputStream();
+            try (WritableByteChannel channel = encryption.encryptingChannel(Channels.newChannel(channelEncrypted))) {
+                channel.write(ByteBuffer.wrap(data));
+            }
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            try (ReadableByteChannel channel = encryption.decryptingChannel(Channels.newChannel(new ByteArrayInputStream(channelEncrypted.toByteArray())))) {
+                Channels.newInputStream(channel).transferTo(decrypted);
+            }
+            Assertions.assertArrayEquals(data, decrypted.toByteArray());
+        }
+    }
+
+    @Test
+    public void testModifiedStream() throws IOException {
+        GcmEncryption encryption = new GcmEncryption(new RandomKey(256));
+        byte[] data = new byte[2 * GcmEncryption.SEGMENT_SIZE + 5];
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        encryption.encrypt(new ByteArrayInputStream(data), encrypted);
+        byte[] bytes = encrypted.toByteArray();
+
+        byte[] modified = bytes.clone();
+        modified[100] ^= 1;
+        Assertions.assertThrows(IOException.class, () -> encryption.decryptingStream(new ByteArrayInputStream(modified)).readAllBytes());
+
+        byte[] truncated = Arrays.copyOf(bytes, 8 + 4 + GcmEncryption.SEGMENT_SIZE + 16);
+        Assertions.assertThrows(IOException.class, () -> encryption.decryptingStream(new ByteArrayInputStream(truncated)).readAllBytes());
+    }
+
+    @Test
+    public void testByteBuffers() throws GeneralSecurityException {
+        GcmEncryption encryption = new GcmEncryption(new RandomKey(256));
+        byte[] message = "Authenticated message".getBytes();
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(encryption.getEncryptedSize(message.length));
+        encryption.encrypt(ByteBuffer.wrap(message), encrypted);
+        Assertions.assertFalse(encrypted.hasRemaining());
+        encrypted.flip();
+
+        ByteBuffer modified = ByteBuffer.allocate(encrypted.remaining());
+        modified.put(encrypted.duplicate()).flip();
+        modified.put(20, (byte) (modified.get(20) ^ 1));
+        Assertions.assertThrows(AEADBadTagException.class, () -> encryption.decrypt(modified, ByteBuffer.allocate(message.length)));
+        Assertions.assertEquals(0, modified.position());
+
+        ByteBuffer decrypted = ByteBuffer.allocate(encryption.getDecryptedSize(encrypted.remaining()));
+        Assertions.assertEquals(message.length, encryption.decrypt(encrypted, decrypted));
+        Assertions.assertArrayEquals(message, decrypted.array());
+    }
+
+}
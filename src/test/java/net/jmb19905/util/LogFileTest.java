@@ -0,0 +1,118 @@
+package net.jmb19905.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+public class LogFileTest {
+
+    @Test
+    public void testChannelRollover() throws IOException {
+        testRollover(false);
+    }
+
+    @Test
+    public void testMappedRollover() throws IOException {
+        testRollover(true);
+    }
+
+    @Test
+    public void testMappedWindows() throws IOException {
+        Path directory = Files.createTempDirectory("logs");
+        LogFile file = new LogFile(directory, "test", ".log", new Logger.FileSettings().memoryMapped(true));
+        long expected = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String line = "Mapped line " + i;
+            file.write(line);
+            expected += (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+            if (i == 50_000) {
+                file.flush();
+            }
+        }
+        file.close();
+
+        // more than one full window, and no padding behind the last line
+        Path path = directory.resolve("latest_test.log");
+        Assertions.assertTrue(expected > 1024 * 1024);
+        Assertions.assertEquals(expected, Files.size(path));
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        Assertions.assertEquals(100_000, lines.size());
+        Assertions.assertEquals("Mapped line 99999", lines.get(99_999));
+    }
+
+    private static void testRollover(boolean memoryMapped) throws IOException {
+        Path directory = Files.createTempDirectory("logs");
+        LogFile file = new LogFile(directory, "test", ".log", new Logger.FileSettings()
+                .maxSize(4096)
+                .compressed(true)
+                .memoryMapped(memoryMapped));
+        for (int i = 0; i < 500; i++) {
+            file.write("Line " + i + " \u00e4\u00f6\u00fc \uD83D\uDE00");
+        }
+        file.close();
+
+        List<Path> rotated;
+        try (Stream<Path> files = Files.list(directory)) {
+            rotated = files.filter(path -> path.toString().endsWith(".log.gz"))
+                    .sorted(Comparator.comparingInt(LogFileTest::segment))
+                    .toList();
+        }
+        Assertions.assertTrue(rotated.size() > 1);
+
+        List<String> lines = new ArrayList<>();
+        for (Path path : rotated) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                lines.addAll(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+            }
+        }
+        lines.addAll(Files.readAllLines(directory.resolve("latest_test.log"), StandardCharsets.UTF_8));
+        Assertions.assertEquals(500, lines.size());
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertEquals("Line " + i + " \u00e4\u00f6\u00fc \uD83D\uDE00", lines.get(i));
+        }
+    }
+
+    @Test
+    public void testJsonLog() throws IOException {
+        Path directory = Files.createTempDirectory("logs");
+        JsonLogFile file = new JsonLogFile(new LogFile(directory, "test", ".json", new Logger.FileSettings()));
+        file.write(new LogRecord(Logger.Level.INFO, 1000, "main", null, ANSIColors.getRed() + "Hello \"World\"", null, Map.of("user", "jmb")));
+        file.write(new LogRecord(Logger.Level.ERROR, 2000, "worker", "net", "Failed", new IllegalStateException("broken"), null));
+        file.write(new LogRecord(Logger.Level.INFO, 3000, "main", null, null, null, null));
+        file.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve("latest_test.json"), StandardCharsets.UTF_8);
+        Assertions.assertEquals(3, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines.get(0));
+        Assertions.assertEquals(1000, first.get("timestamp").asLong());
+        Assertions.assertEquals("INFO", first.get("level").asText());
+        Assertions.assertEquals("main", first.get("thread").asText());
+        Assertions.assertEquals("Hello \"World\"", first.get("message").asText());
+        Assertions.assertEquals("jmb", first.get("context").get("user").asText());
+        JsonNode second = mapper.readTree(lines.get(1));
+        Assertions.assertEquals("net", second.get("logger").asText());
+        Assertions.assertEquals("java.lang.IllegalStateException", second.get("exception").get("class").asText());
+        Assertions.assertEquals("broken", second.get("exception").get("message").asText());
+        Assertions.assertTrue(mapper.readTree(lines.get(2)).get("message").isNull());
+    }
+
+    private static int segment(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.indexOf(".log")));
+    }
+
+}
@@ -0,0 +1,69 @@
+package net.jmb19905.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@Tag("benchmark")
+public class LoggerContentionBenchmark {
+
+    private static final int LINES_PER_RUN = 64_000;
+    private static final Pattern LINE = Pattern.compile("\\[[^]]+] \\[INFO] worker-\\d+ line-\\d+ .{32}");
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @Test
+    public void benchmarkContention() throws Exception {
+        PrintStream console = System.out;
+        // the console would dominate the measurement, so only the log file is really written
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Logger.initLogFile("contention_benchmark");
+        String padding = "x".repeat(32);
+        try {
+            for (int threads = 1; threads <= 64; threads *= 2) {
+                long time = run(threads, padding);
+                console.printf("%2d threads: %,10.0f lines/s%n", threads, LINES_PER_RUN / (time / 1e9));
+            }
+        } finally {
+            System.setOut(console);
+        }
+
+        // every line has to be written whole once all logging threads returned
+        File logFile = new File("logs/latest_contention_benchmark.log");
+        List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertEquals(7 * LINES_PER_RUN, lines.size());
+        for (String line : lines) {
+            Assertions.assertTrue(LINE.matcher(line).matches(), "Broken line: " + line);
+        }
+        logFile.delete();
+    }
+
+    private static long run(int threads, String padding) throws InterruptedException {
+        int linesPerThread = LINES_PER_RUN / threads;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            String prefix = "worker-" + i + " line-";
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < linesPerThread; j++) {
+                    Logger.info(prefix + j + " " + padding);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+}
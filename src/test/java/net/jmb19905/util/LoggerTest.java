@@ -0,0 +1,169 @@
+package net.jmb19905.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class LoggerTest {
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @Test
+    public void testAsyncLogging() throws IOException {
+        Logger.initLogFile("async_test");
+        Logger.enableAsync(4, Logger.OverflowPolicy.BLOCK, Logger.Level.TRACE);
+        Assertions.assertTrue(Logger.isAsync());
+        for (int i = 0; i < 100; i++) {
+            Logger.info("Async " + i);
+        }
+        Logger.flush();
+
+        File logFile = new File("logs/latest_async_test.log");
+        List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertEquals(100, lines.size());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(lines.get(i).endsWith("[INFO] Async " + i));
+        }
+
+        Logger.disableAsync();
+        Assertions.assertFalse(Logger.isAsync());
+        logFile.delete();
+    }
+
+    @Test
+    public void testAsyncBrokenRecord() {
+        PrintStream console = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            Logger.setLevel(Logger.Level.INFO);
+            Logger.enableAsync(4, Logger.OverflowPolicy.BLOCK, Logger.Level.TRACE);
+            Logger.warn("Broken", new IllegalStateException() {
+                @Override
+                public void printStackTrace(PrintWriter s) {
+                    throw new UnsupportedOperationException("cannot print");
+                }
+            });
+            // the writer thread survives the broken record, so the ring buffer doesn't stay full
+            for (int i = 0; i < 20; i++) {
+                Logger.info("After broken " + i);
+            }
+            Logger.flush();
+            Assertions.assertTrue(Logger.isAsync());
+
+            // an Error kills the writer thread, the Logger then falls back to writing synchronously
+            Logger.warn("Fatal", new IllegalStateException() {
+                @Override
+                public void printStackTrace(PrintWriter s) {
+                    throw new AssertionError("writer died");
+                }
+            });
+            for (int i = 0; i < 20; i++) {
+                Logger.info("After death " + i);
+            }
+            Logger.flush();
+            Assertions.assertFalse(Logger.isAsync());
+        } finally {
+            Logger.disableAsync();
+            System.setOut(console);
+        }
+        String output = captured.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.contains("java.lang.UnsupportedOperationException: cannot print"));
+        Assertions.assertTrue(output.contains("[INFO] After broken 19"));
+        Assertions.assertTrue(output.contains("[INFO] After death 19"));
+    }
+
+    @Test
+    public void testLazyLogging() {
+        PrintStream console = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            Logger.setLevel(Logger.Level.INFO);
+            Assertions.assertFalse(Logger.isDebugEnabled());
+            Assertions.assertTrue(Logger.isFatalEnabled());
+            Logger.trace(() -> {
+                throw new AssertionError("Disabled message was created");
+            });
+            Logger.info("{} + {} = {}", 1, 2, 3);
+            Logger.info("Missing {} and {}", "one");
+            Logger.warn("Failed with", new IllegalStateException("test"));
+        } finally {
+            System.setOut(console);
+        }
+        String output = captured.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.contains("[INFO] 1 + 2 = 3"));
+        Assertions.assertTrue(output.contains("[INFO] Missing one and {}"));
+        Assertions.assertTrue(output.contains("java.lang.IllegalStateException: test"));
+    }
+
+    @Test
+    public void testNullMessage() {
+        PrintStream console = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            Logger.setLevel(Logger.Level.INFO);
+            Logger.info((String) null);
+            Logger.info("After null");
+        } finally {
+            System.setOut(console);
+        }
+        String output = captured.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.contains("[INFO] null"));
+        Assertions.assertTrue(output.contains("[INFO] After null"));
+    }
+
+    @Test
+    public void testSystemStreamBridge() {
+        PrintStream console = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            Logger.installSystemStreams();
+            Assertions.assertSame(Logger.getPrintStream(Logger.Level.INFO), System.out);
+            System.out.print("First \u00e4\u20ac\uD83D\uDE00 line\r\nSecond");
+            System.out.println(" line");
+            System.err.println("Error line");
+            Logger.uninstallSystemStreams();
+        } finally {
+            System.setOut(console);
+        }
+        String output = captured.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.contains("[INFO] First \u00e4\u20ac\uD83D\uDE00 line" + (Logger.isColored() ? ANSIColors.getReset() : System.lineSeparator())));
+        Assertions.assertTrue(output.contains("[INFO] Second line"));
+        Assertions.assertTrue(output.contains("[ERROR] Error line"));
+    }
+
+    @Test
+    public void testNamedLoggers() {
+        Logger.setLevel(Logger.Level.INFO);
+        NamedLogger leaf = Logger.get("test.named.leaf");
+        NamedLogger top = Logger.get("test");
+        Assertions.assertSame(top, leaf.getParent().getParent());
+        Assertions.assertSame(leaf, Logger.get("test.named.leaf"));
+        Assertions.assertEquals(Logger.Level.INFO, leaf.getEffectiveLevel());
+
+        top.setLevel(Logger.Level.DEBUG);
+        Assertions.assertTrue(leaf.isDebugEnabled());
+        Assertions.assertFalse(leaf.isTraceEnabled());
+
+        leaf.getParent().setLevel(Logger.Level.TRACE);
+        Assertions.assertTrue(leaf.isTraceEnabled());
+        Assertions.assertFalse(top.isTraceEnabled());
+
+        top.setLevel(null);
+        Logger.setLevel(Logger.Level.WARN);
+        Assertions.assertEquals(Logger.Level.WARN, top.getEffectiveLevel());
+        Assertions.assertEquals(Logger.Level.TRACE, leaf.getEffectiveLevel());
+        Logger.setLevel(Logger.Level.INFO);
+    }
+
+}
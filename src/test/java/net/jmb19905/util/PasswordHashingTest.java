@@ -0,0 +1,159 @@
+package net.jmb19905.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class PasswordHashingTest {
+
+    @Test
+    public void testHash() {
+        String hash = PasswordHashing.hash("secret", PasswordHashing.PBKDF2_SHA256, 1000);
+        Assertions.assertTrue(hash.startsWith("$pbkdf2-sha256$1000$"));
+        Assertions.assertTrue(PasswordHashing.verify("secret", hash));
+        Assertions.assertFalse(PasswordHashing.verify("Secret", hash));
+        Assertions.assertNotEquals(hash, PasswordHashing.hash("secret", PasswordHashing.PBKDF2_SHA256, 1000));
+
+        Assertions.assertFalse(PasswordHashing.verify("secret", "$unknown$1000$AAAA$AAAA"));
+        Assertions.assertFalse(PasswordHashing.verify("secret", "not a hash"));
+        // corrupt or tampered hashes are a mismatch, not an exception or a long computation
+        String[] parts = hash.split("\\$");
+        Assertions.assertFalse(PasswordHashing.verify("secret", "$pbkdf2-sha256$1000$$" + parts[4]));
+        Assertions.assertFalse(PasswordHashing.verify("secret", "$pbkdf2-sha256$1000$" + parts[3] + "$"));
+        Assertions.assertFalse(PasswordHashing.verify("secret", "$pbkdf2-sha256$2000000000$" + parts[3] + "$" + parts[4]));
+        Assertions.assertFalse(PasswordHashing.verify("secret", "$pbkdf2-sha256$1000$" + parts[3] + "$" + "A".repeat(100_000)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PasswordHashing.hash("secret", PasswordHashing.PBKDF2_SHA256, 20_000_000));
+
+        String sha512 = PasswordHashing.hash("secret", PasswordHashing.PBKDF2_SHA512, 2000);
+        Assertions.assertTrue(PasswordHashing.verify("secret", sha512));
+    }
+
+    @Test
+    public void testCustomEngine() {
+        PasswordHashing.Engine custom = new PasswordHashing.Engine() {
+            @Override
+            public String getId() {
+                return "custom";
+            }
+
+            @Override
+            public int getMinimumCost() {
+                return 1;
+            }
+
+            @Override
+            public byte[] derive(char[] password, byte[] salt, int cost, int length) throws GeneralSecurityException {
+                return PasswordHashing.PBKDF2_SHA256.derive(password, salt, cost * 1000, length);
+            }
+        };
+        // hashing registers the engine, so the hash can be verified right away
+        String hash = PasswordHashing.hash("secret", custom, 2);
+        Assertions.assertTrue(hash.startsWith("$custom$2$"));
+        Assertions.assertTrue(PasswordHashing.verify("secret", hash));
+        Assertions.assertFalse(PasswordHashing.verify("Secret", hash));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PasswordHashing.hash("secret", PasswordHashing.PBKDF2_SHA256, 500));
+    }
+
+    @Test
+    public void testRehash() {
+        PasswordHashing.configure(PasswordHashing.PBKDF2_SHA256, 2000);
+        String hash = PasswordHashing.hash("secret");
+        Assertions.assertFalse(PasswordHashing.needsRehash(hash));
+        PasswordHashing.configure(PasswordHashing.PBKDF2_SHA256, 3000);
+        Assertions.assertTrue(PasswordHashing.needsRehash(hash));
+        PasswordHashing.configure(PasswordHashing.PBKDF2_SHA512, 2000);
+        Assertions.assertTrue(PasswordHashing.needsRehash(hash));
+        Assertions.assertTrue(PasswordHashing.verify("secret", hash));
+    }
+
+    @Test
+    public void testCalibrate() {
+        int cost = PasswordHashing.calibrate(PasswordHashing.PBKDF2_SHA256, Duration.ofMillis(20));
+        Assertions.assertTrue(cost >= PasswordHashing.PBKDF2_SHA256.getMinimumCost());
+    }
+
+    @Test
+    public void testConcurrentLegacyHashes() throws Exception {
+        byte[] salt = PasswordHashing.generateSalt();
+        byte[] expected = PasswordHashing.hashPassword("password", salt);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                results.add(executor.submit(() -> PasswordHashing.checkPassword("password", expected, salt)));
+            }
+            for (Future<Boolean> result : results) {
+                Assertions.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVerifier() throws Exception {
+        String hash = PasswordHashing.hash("secret", PasswordHashing.PBKDF2_SHA256, 20_000);
+        try (PasswordVerifier verifier = new PasswordVerifier(1, 2)) {
+            Assertions.assertTrue(verifier.verify("secret", hash).get());
+            Assertions.assertFalse(verifier.verify("wrong", hash).get());
+
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(verifier.verify("secret", hash));
+            }
+            int rejected = 0;
+            for (CompletableFuture<Boolean> result : results) {
+                try {
+                    Assertions.assertTrue(result.get());
+                } catch (ExecutionException e) {
+                    Assertions.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                    rejected++;
+                }
+            }
+            // one running and two queued checks at most
+            Assertions.assertTrue(rejected >= 7);
+            Assertions.assertEquals(rejected, verifier.getRejectedCount());
+            Assertions.assertEquals(12 - rejected, verifier.getCompletedCount());
+            Assertions.assertTrue(verifier.getAverageCheckNanos() > 0);
+            Assertions.assertEquals(0, verifier.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void testVerifierError() throws Exception {
+        PasswordHashing.register(new PasswordHashing.Engine() {
+            @Override
+            public String getId() {
+                return "failing";
+            }
+
+            @Override
+            public int getMinimumCost() {
+                return 1;
+            }
+
+            @Override
+            public byte[] derive(char[] password, byte[] salt, int cost, int length) {
+                throw new AssertionError("provider failure");
+            }
+        });
+        try (PasswordVerifier verifier = new PasswordVerifier(1, 2)) {
+            CompletableFuture<Boolean> result = verifier.verify("secret", "$failing$1$AAAAAAAAAAA$AAAAAAAAAAA");
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof AssertionError);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package net.jmb19905.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+@Tag("benchmark")
+public class PrintStreamBenchmark {
+
+    private static final int LINES = 5_000;
+
+    @Test
+    public void benchmarkPrintStream() {
+        // only the bridge is measured - the lines are dropped by the level check afterwards
+        Logger.setLevel(Logger.Level.FATAL);
+        String line = "Some output of a library that writes to System.out \u00e4\u00f6\u00fc \u20ac";
+        long bytes = (long) LINES * (line.getBytes(StandardCharsets.UTF_8).length + 1);
+
+        for (int round = 0; round < 3; round++) {
+            long legacy = run(legacyPrintStream(), line);
+            long bridge = run(Logger.getPrintStream(Logger.Level.INFO), line);
+            System.out.printf("legacy: %8.2f MB/s | bridge: %8.2f MB/s%n", bytes / (legacy / 1e3), bytes / (bridge / 1e3));
+        }
+    }
+
+    private static long run(PrintStream stream, String line) {
+        long start = System.nanoTime();
+        for (int i = 0; i < LINES; i++) {
+            stream.println(line);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The implementation of Logger.createPrintStream before the byte buffered bridge
+     */
+    private static PrintStream legacyPrintStream() {
+        return new PrintStream(new OutputStream() {
+            final StringBuilder builder = new StringBuilder();
+            @Override
+            public void write(int b) {
+                if(((byte) b) == '\n') Logger.log(builder.toString(), Logger.Level.INFO);
+                else builder.append(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(new byte[]{(byte) b})).get());
+            }
+        }, true, StandardCharsets.UTF_8);
+    }
+
+}